@@ -0,0 +1,88 @@
+package com.acme.app;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.acme.lib.Entity;
+
+public class Customer extends Entity<Long> {
+    private static final long serialVersionUID = 1L;
+
+    private String name;
+    private final List<Order> orders = new ArrayList<>();
+    private final Map<String, String[]> attributes = new LinkedHashMap<>();
+
+    public Customer(long id, String name) {
+        super();
+        setId(id);
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public List<Order> getOrders() {
+        return orders;
+    }
+
+    public Order addOrder(String sku, int quantity, double price) {
+        Order order = new Order(this, sku, quantity, price);
+        orders.add(order);
+        touch();
+        return order;
+    }
+
+    public double getTotal() {
+        double total = 0;
+        for (Order order : orders)
+            total += order.getQuantity() * order.getPrice();
+        return total;
+    }
+
+    public String[] getAttribute(String key) {
+        String[] values = attributes.get(key);
+        return values == null ? new String[0] : values.clone();
+    }
+
+    public void setAttribute(String key, String... values) {
+        attributes.put(key.toLowerCase(), values);
+    }
+
+    public static class Order {
+        private final Customer customer;
+        private final String sku;
+        private final int quantity;
+        private final double price;
+
+        Order(Customer customer, String sku, int quantity, double price) {
+            this.customer = customer;
+            this.sku = sku;
+            this.quantity = quantity;
+            this.price = price;
+        }
+
+        public Customer getCustomer() {
+            return customer;
+        }
+
+        public String getSku() {
+            return sku;
+        }
+
+        public int getQuantity() {
+            return quantity;
+        }
+
+        public double getPrice() {
+            return price;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s x%d @%.2f for %s", sku, quantity, price, customer.getName());
+        }
+    }
+}
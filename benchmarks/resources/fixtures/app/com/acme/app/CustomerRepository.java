@@ -0,0 +1,92 @@
+package com.acme.app;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.function.Predicate;
+
+import com.acme.lib.Repository;
+import com.acme.lib.Result;
+import com.acme.lib.StorageException;
+
+public class CustomerRepository implements Repository<Long, Customer> {
+    private final TreeMap<Long, Customer> customers = new TreeMap<>();
+
+    @Override
+    public Optional<Customer> find(Long id) {
+        return Optional.ofNullable(customers.get(id));
+    }
+
+    @Override
+    public List<Customer> findAll(Predicate<? super Customer> filter) {
+        List<Customer> result = new ArrayList<>();
+        for (Customer customer : customers.values()) {
+            if (filter.test(customer))
+                result.add(customer);
+        }
+        return result;
+    }
+
+    @Override
+    public Map<Long, List<Customer>> groupBy(Collection<? extends Long> ids) {
+        Map<Long, List<Customer>> groups = new HashMap<>();
+        for (Long id : ids) {
+            Customer customer = customers.get(id);
+            if (customer == null)
+                continue;
+            List<Customer> group = groups.get(id % 10);
+            if (group == null) {
+                group = new ArrayList<>();
+                groups.put(id % 10, group);
+            }
+            group.add(customer);
+        }
+        return groups;
+    }
+
+    @Override
+    public Customer[] toArray(Customer[] template) {
+        return customers.values().toArray(template);
+    }
+
+    @Override
+    public void save(Customer entity) throws StorageException {
+        if (entity.getId() == null)
+            throw new StorageException("Missing id for " + entity.getName(), Result.Status.FAILED);
+        Customer existing = customers.get(entity.getId());
+        if (existing != null && existing.getVersion() > entity.getVersion())
+            throw new StorageException("Stale customer " + entity.getId(), Result.Status.CONFLICT);
+        entity.touch();
+        customers.put(entity.getId(), entity);
+    }
+
+    @Override
+    public int delete(Long... ids) {
+        int deleted = 0;
+        for (Long id : Arrays.asList(ids)) {
+            if (customers.remove(id) != null)
+                deleted++;
+        }
+        return deleted;
+    }
+
+    public Result<Customer> saveAll(Customer[][] batches) {
+        Customer last = null;
+        try {
+            for (int i = 0; i < batches.length; i++) {
+                for (Customer customer : batches[i]) {
+                    save(customer);
+                    last = customer;
+                }
+            }
+        } catch (StorageException | IllegalStateException e) {
+            return Result.failed(e.getMessage());
+        }
+        return Result.ok(last);
+    }
+}
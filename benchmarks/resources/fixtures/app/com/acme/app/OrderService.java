@@ -0,0 +1,105 @@
+package com.acme.app;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.acme.lib.Events;
+import com.acme.lib.Result;
+import com.acme.lib.StorageException;
+
+public class OrderService {
+    private final CustomerRepository repository;
+    private final Events<Customer.Order> events = new Events<>();
+    private final AtomicLong nextId = new AtomicLong(1);
+    private final Map<String, List<Customer.Order>> bySku = new HashMap<>();
+
+    public OrderService(CustomerRepository repository) {
+        this.repository = repository;
+        events.subscribe(new Events.Listener<Object>() {
+            @Override
+            public void on(String topic, Object event) {
+                System.out.println(topic + ": " + event);
+            }
+        });
+    }
+
+    public Customer register(String name) {
+        Customer customer = new Customer(nextId.getAndIncrement(), name);
+        try {
+            repository.save(customer);
+        } catch (StorageException e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        }
+        return customer;
+    }
+
+    public Result<Customer.Order> place(long customerId, String sku, int quantity, double price) {
+        Optional<Customer> customer = repository.find(customerId);
+        if (!customer.isPresent())
+            return new Result<>(Result.Status.NOT_FOUND, null);
+        Customer.Order order = customer.get().addOrder(sku, quantity, price);
+        List<Customer.Order> orders = bySku.get(sku);
+        if (orders == null) {
+            orders = new ArrayList<>();
+            bySku.put(sku, orders);
+        }
+        orders.add(order);
+        events.publish("order", order);
+        return Result.ok(order);
+    }
+
+    public List<Customer> topCustomers(int n) {
+        List<Customer> customers = repository.findAll(c -> !c.getOrders().isEmpty());
+        Collections.sort(customers, new Comparator<Customer>() {
+            @Override
+            public int compare(Customer a, Customer b) {
+                return Double.compare(b.getTotal(), a.getTotal());
+            }
+        });
+        return customers.subList(0, Math.min(n, customers.size()));
+    }
+
+    public double[][] quantitiesBySku(String[] skus) {
+        double[][] matrix = new double[skus.length][2];
+        for (int i = 0; i < skus.length; i++) {
+            List<Customer.Order> orders = bySku.get(skus[i]);
+            if (orders == null)
+                continue;
+            for (Customer.Order order : orders) {
+                matrix[i][0] += order.getQuantity();
+                matrix[i][1] += order.getQuantity() * order.getPrice();
+            }
+        }
+        return matrix;
+    }
+
+    public String describe(Object value) {
+        if (value instanceof Customer)
+            return ((Customer) value).getName() + " (" + ((Customer) value).getOrders().size() + " orders)";
+        if (value instanceof Customer.Order) {
+            Customer.Order order = (Customer.Order) value;
+            return order.getSku() + " for " + order.getCustomer().getName();
+        }
+        return String.valueOf(value);
+    }
+
+    public <K extends Comparable<K>, V extends List<? extends Customer.Order>> Map<K, Integer> countAll(Map<K, V> groups) {
+        Map<K, Integer> counts = new HashMap<>();
+        for (Map.Entry<K, V> entry : groups.entrySet())
+            counts.put(entry.getKey(), entry.getValue().size());
+        return counts;
+    }
+
+    public int cancel(long... customerIds) {
+        Long[] ids = new Long[customerIds.length];
+        for (int i = 0; i < ids.length; i++)
+            ids[i] = customerIds[i];
+        return repository.delete(ids);
+    }
+}
@@ -0,0 +1,31 @@
+package com.acme.lib;
+
+import java.io.Serializable;
+
+public abstract class Entity<ID extends Comparable<ID>> implements Serializable, Comparable<Entity<ID>> {
+    private static final long serialVersionUID = 1L;
+
+    protected ID id;
+    protected long version;
+
+    public ID getId() {
+        return id;
+    }
+
+    public void setId(ID id) {
+        this.id = id;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void touch() {
+        version++;
+    }
+
+    @Override
+    public int compareTo(Entity<ID> other) {
+        return id.compareTo(other.id);
+    }
+}
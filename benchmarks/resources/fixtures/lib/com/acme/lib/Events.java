@@ -0,0 +1,22 @@
+package com.acme.lib;
+
+import java.util.EventListener;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+public class Events<E> {
+    public interface Listener<E> extends EventListener {
+        void on(String topic, E event);
+    }
+
+    private final CopyOnWriteArrayList<Listener<? super E>> listeners = new CopyOnWriteArrayList<>();
+
+    public void subscribe(Listener<? super E> listener) {
+        listeners.add(listener);
+    }
+
+    public int publish(String topic, E event) {
+        for (Listener<? super E> listener : listeners)
+            listener.on(topic, event);
+        return listeners.size();
+    }
+}
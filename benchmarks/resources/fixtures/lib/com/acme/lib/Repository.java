@@ -0,0 +1,22 @@
+package com.acme.lib;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Predicate;
+
+public interface Repository<ID extends Comparable<ID>, E extends Entity<ID>> {
+    Optional<E> find(ID id);
+
+    List<E> findAll(Predicate<? super E> filter);
+
+    Map<ID, List<E>> groupBy(Collection<? extends ID> ids);
+
+    E[] toArray(E[] template);
+
+    void save(E entity) throws StorageException;
+
+    @SuppressWarnings("unchecked")
+    int delete(ID... ids);
+}
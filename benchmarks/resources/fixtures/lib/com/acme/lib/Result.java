@@ -0,0 +1,47 @@
+package com.acme.lib;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public final class Result<T> {
+    public enum Status {
+        OK, NOT_FOUND, CONFLICT, FAILED
+    }
+
+    public static final Result<Void> EMPTY = new Result<>(Status.OK, null);
+
+    private final Status status;
+    private final T value;
+    private final List<String> messages = new ArrayList<>();
+
+    public Result(Status status, T value) {
+        this.status = status;
+        this.value = value;
+    }
+
+    public static <T> Result<T> ok(T value) {
+        return new Result<>(Status.OK, value);
+    }
+
+    public static <T> Result<T> failed(String message) {
+        Result<T> result = new Result<>(Status.FAILED, null);
+        result.messages.add(message);
+        return result;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public T getValue() {
+        return value;
+    }
+
+    public List<String> getMessages() {
+        return messages;
+    }
+
+    public boolean isOk() {
+        return status == Status.OK;
+    }
+}
@@ -0,0 +1,16 @@
+package com.acme.lib;
+
+public class StorageException extends Exception {
+    private static final long serialVersionUID = 1L;
+
+    private final Result.Status status;
+
+    public StorageException(String message, Result.Status status) {
+        super(message);
+        this.status = status;
+    }
+
+    public Result.Status getStatus() {
+        return status;
+    }
+}
@@ -0,0 +1,124 @@
+package fqntypeparser;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jdt.core.dom.ASTNode;
+import org.eclipse.jdt.core.dom.ASTVisitor;
+import org.eclipse.jdt.core.dom.ArrayType;
+import org.eclipse.jdt.core.dom.ParameterizedType;
+import org.eclipse.jdt.core.dom.Type;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * The per-method work of ProjectSequencesGenerator.generateSequence, stage by stage, over the
+ * methods of the checked-in fixtures (see Fixtures), which are parsed once with bindings.
+ * Every benchmark processes all the methods once.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExtractionBenchmark {
+    private List<Fixtures.Method> methods;
+    private Type[] nestedTypes;
+    private SequenceRecord[] records;
+    private StringBuilder json = new StringBuilder(1 << 16);
+    private SymbolTable symbols = new SymbolTable();
+
+    @Setup
+    public void setup() throws IOException {
+        methods = Fixtures.parse();
+        final List<Type> types = new ArrayList<>();
+        records = new SequenceRecord[methods.size()];
+        for (int i = 0; i < records.length; i++) {
+            Fixtures.Method m = methods.get(i);
+            m.declaration.accept(new ASTVisitor() {
+                @Override
+                public void preVisit(ASTNode node) {
+                    if (node instanceof ParameterizedType || node instanceof ArrayType)
+                        types.add((Type) node);
+                }
+            });
+            records[i] = new SequenceRecord(m.source.getPath(), m.typeName, ProjectSequencesGenerator.buildSignature(m.declaration),
+                    snippet(m), visit(m, new BindingCache(symbols)));
+        }
+        nestedTypes = types.toArray(new Type[0]);
+    }
+
+    private static CharSequence snippet(Fixtures.Method m) {
+        return m.source.getLinesOf(m.declaration.getStartPosition(), m.declaration.getLength());
+    }
+
+    private static ArrayList<NodeRecord> visit(Fixtures.Method m, BindingCache cache) {
+        FQNSequenceGenerator sg = new FQNSequenceGenerator(m.className, m.superClassName, m.declaration.getStartPosition() - 1, cache, m.source);
+        m.declaration.accept(sg);
+        return sg.getNodeInfo();
+    }
+
+    /**
+     * Visits every method with one binding cache, as a batch does.
+     */
+    @Benchmark
+    public void visit(Blackhole bh) {
+        BindingCache cache = new BindingCache(symbols);
+        for (Fixtures.Method m : methods)
+            bh.consume(visit(m, cache));
+    }
+
+    @Benchmark
+    public void visitUncached(Blackhole bh) {
+        for (Fixtures.Method m : methods) {
+            FQNSequenceGenerator sg = new FQNSequenceGenerator(m.className, m.superClassName, m.declaration.getStartPosition() - 1);
+            m.declaration.accept(sg);
+            bh.consume(sg.getNodeInfo());
+        }
+    }
+
+    /**
+     * Resolves every parameterized and array type written in the methods.
+     */
+    @Benchmark
+    public void resolvedType(Blackhole bh) {
+        for (Type type : nestedTypes)
+            bh.consume(FQNSequenceGenerator.getResolvedType(type));
+    }
+
+    @Benchmark
+    public void buildSignature(Blackhole bh) {
+        for (Fixtures.Method m : methods)
+            bh.consume(ProjectSequencesGenerator.buildSignature(m.declaration));
+    }
+
+    @Benchmark
+    public void snippet(Blackhole bh) {
+        for (Fixtures.Method m : methods)
+            bh.consume(snippet(m).toString());
+    }
+
+    /**
+     * Serializes every method record the way JsonlShardSink writes it.
+     */
+    @Benchmark
+    public void serializeJson(Blackhole bh) {
+        for (SequenceRecord record : records) {
+            json.setLength(0);
+            record.appendJson(json);
+            bh.consume(json.length());
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package fqntypeparser;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.stream.Stream;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.jdt.core.dom.AST;
+import org.eclipse.jdt.core.dom.ASTParser;
+import org.eclipse.jdt.core.dom.CompilationUnit;
+import org.eclipse.jdt.core.dom.FileASTRequestor;
+import org.eclipse.jdt.core.dom.MethodDeclaration;
+import org.eclipse.jdt.core.dom.TypeDeclaration;
+
+/**
+ * The checked-in benchmark fixtures (resources/fixtures): an application under app/ and a
+ * small library under lib/ that it depends on. They are copied out of the benchmark jar into
+ * a temporary directory, the library is compiled into lib.jar, and the application is parsed
+ * against it with bindings resolved, the same way ProjectSequencesGenerator parses a corpus.
+ */
+final class Fixtures {
+    static final String[] LIB = {
+            "com/acme/lib/Entity.java",
+            "com/acme/lib/Events.java",
+            "com/acme/lib/Repository.java",
+            "com/acme/lib/Result.java",
+            "com/acme/lib/StorageException.java"};
+    static final String[] APP = {
+            "com/acme/app/Customer.java",
+            "com/acme/app/CustomerRepository.java",
+            "com/acme/app/OrderService.java"};
+
+    /**
+     * A method of the parsed application with what generateSequence needs to process it.
+     */
+    static final class Method {
+        final SourceFile source;
+        final CompilationUnit ast;
+        final MethodDeclaration declaration;
+        final String typeName, className, superClassName;
+
+        Method(SourceFile source, CompilationUnit ast, MethodDeclaration declaration, String typeName, String className, String superClassName) {
+            this.source = source;
+            this.ast = ast;
+            this.declaration = declaration;
+            this.typeName = typeName;
+            this.className = className;
+            this.superClassName = superClassName;
+        }
+    }
+
+    private Fixtures() {
+    }
+
+    /**
+     * Parses the application and returns all its methods, inner types included. The sources are
+     * read into memory, so the temporary directory is gone when this returns.
+     */
+    static List<Method> parse() throws IOException {
+        Path dir = Files.createTempDirectory("fqn-fixtures");
+        try {
+            return parse(dir);
+        } finally {
+            try (Stream<Path> files = Files.walk(dir)) {
+                files.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+            }
+        }
+    }
+
+    private static List<Method> parse(Path dir) throws IOException {
+        String jar = compileLibrary(dir);
+        String[] sourcePaths = new String[APP.length];
+        for (int i = 0; i < APP.length; i++)
+            sourcePaths[i] = extract("app/" + APP[i], dir.resolve("app")).getAbsolutePath();
+
+        @SuppressWarnings("rawtypes")
+        Map options = JavaCore.getOptions();
+        options.put(JavaCore.COMPILER_COMPLIANCE, JavaCore.VERSION_1_8);
+        options.put(JavaCore.COMPILER_CODEGEN_TARGET_PLATFORM, JavaCore.VERSION_1_8);
+        options.put(JavaCore.COMPILER_SOURCE, JavaCore.VERSION_1_8);
+        ASTParser parser = ASTParser.newParser(AST.JLS8);
+        parser.setCompilerOptions(options);
+        parser.setEnvironment(new String[]{jar}, new String[]{dir.resolve("app").toString()}, null, true);
+        parser.setResolveBindings(true);
+        parser.setBindingsRecovery(false);
+        final List<Method> methods = new ArrayList<>();
+        final IOException[] error = new IOException[1];
+        parser.createASTs(sourcePaths, null, new String[0], new FileASTRequestor() {
+            @Override
+            public void acceptAST(String sourceFilePath, CompilationUnit ast) {
+                try {
+                    SourceFile source = SourceFile.read(sourceFilePath);
+                    String packageName = ast.getPackage().getName().getFullyQualifiedName();
+                    for (Object type : ast.types())
+                        if (type instanceof TypeDeclaration)
+                            collect(source, ast, packageName, (TypeDeclaration) type, "", methods);
+                } catch (IOException e) {
+                    error[0] = e;
+                }
+            }
+        }, null);
+        if (error[0] != null)
+            throw error[0];
+        return methods;
+    }
+
+    private static void collect(SourceFile source, CompilationUnit ast, String packageName, TypeDeclaration td, String outer, List<Method> methods) {
+        String name = outer.isEmpty() ? td.getName().getIdentifier() : outer + "." + td.getName().getIdentifier();
+        String superClassName = td.getSuperclassType() == null ? null : FQNSequenceGenerator.getUnresolvedType(td.getSuperclassType());
+        for (MethodDeclaration method : td.getMethods())
+            methods.add(new Method(source, ast, method, packageName + "." + name, td.getName().getIdentifier(), superClassName));
+        for (TypeDeclaration inner : td.getTypes())
+            collect(source, ast, packageName, inner, name, methods);
+    }
+
+    private static String compileLibrary(Path dir) throws IOException {
+        Path sources = dir.resolve("lib"), classes = dir.resolve("classes");
+        Files.createDirectories(classes);
+        List<String> args = new ArrayList<>();
+        args.add("-nowarn");
+        args.add("-d");
+        args.add(classes.toString());
+        for (String path : LIB)
+            args.add(extract("lib/" + path, sources).getAbsolutePath());
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null || compiler.run(null, null, null, args.toArray(new String[0])) != 0)
+            throw new IOException("Could not compile the fixture library, a JDK is required.");
+        File jar = dir.resolve("lib.jar").toFile();
+        try (JarOutputStream out = new JarOutputStream(new FileOutputStream(jar))) {
+            List<Path> files = new ArrayList<>();
+            try (Stream<Path> walk = Files.walk(classes)) {
+                walk.filter(Files::isRegularFile).forEach(files::add);
+            }
+            for (Path file : files) {
+                out.putNextEntry(new JarEntry(classes.relativize(file).toString().replace(File.separatorChar, '/')));
+                Files.copy(file, out);
+                out.closeEntry();
+            }
+        }
+        return jar.getAbsolutePath();
+    }
+
+    private static File extract(String resource, Path dir) throws IOException {
+        String path = resource.substring(resource.indexOf('/') + 1);
+        Path target = dir.resolve(path);
+        Files.createDirectories(target.getParent());
+        try (InputStream in = Fixtures.class.getResourceAsStream("/fixtures/" + resource)) {
+            if (in == null)
+                throw new IOException("Missing fixture " + resource);
+            Files.copy(in, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return target.toFile();
+    }
+}
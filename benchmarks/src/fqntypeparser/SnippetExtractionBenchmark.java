@@ -0,0 +1,102 @@
+package fqntypeparser;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.eclipse.jdt.core.dom.AST;
+import org.eclipse.jdt.core.dom.ASTParser;
+import org.eclipse.jdt.core.dom.CompilationUnit;
+import org.eclipse.jdt.core.dom.MethodDeclaration;
+import org.eclipse.jdt.core.dom.TypeDeclaration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Extracts the snippet of every method of a large class, once with the line-counting approach
+ * generateSequence used to take and once by slicing the source buffer with node offsets.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SnippetExtractionBenchmark {
+    @Param({"100", "1000"})
+    public int numOfMethods;
+
+    private String content;
+    private CompilationUnit ast;
+    private MethodDeclaration[] methods;
+
+    @Setup
+    public void setup() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("package bench;\n\nimport java.util.List;\n\npublic class Large {\n");
+        for (int i = 0; i < numOfMethods; i++) {
+            sb.append("    /**\n     * Method ").append(i).append(".\n     */\n");
+            if (i % 2 == 0)
+                sb.append("    @Deprecated\n");
+            sb.append("    public int m").append(i).append("(List<String> list, int n) {\n");
+            sb.append("        int sum = 0;\n");
+            sb.append("        for (String s : list) {\n");
+            sb.append("            if (s.length() > n) sum += s.hashCode();\n");
+            sb.append("        }\n");
+            sb.append("        return sum + list.size();\n");
+            sb.append("    }\n\n");
+        }
+        sb.append("}\n");
+        content = sb.toString();
+        ASTParser parser = ASTParser.newParser(AST.JLS8);
+        parser.setSource(content.toCharArray());
+        ast = (CompilationUnit) parser.createAST(null);
+        methods = ((TypeDeclaration) ast.types().get(0)).getMethods();
+    }
+
+    @Benchmark
+    public void lineCounting(Blackhole bh) {
+        String[] sourceCodeLines = content.lines().toArray(String[]::new);
+        for (MethodDeclaration method : methods) {
+            int methodStartLine = ast.getLineNumber(method.getStartPosition()) - 1;
+            int methodEndLine;
+            if (sourceCodeLines[methodStartLine].contains("@"))
+                methodEndLine = methodStartLine + (int) method.toString().lines().count() + 1;
+            else
+                methodEndLine = methodStartLine + (int) method.toString().lines().count();
+            List<String> methodLines = IntStream.range(0, sourceCodeLines.length)
+                                                .filter(i -> (i >= methodStartLine && i < methodEndLine))
+                                                .mapToObj(i -> sourceCodeLines[i])
+                                                .collect(Collectors.toList());
+            bh.consume(String.join("\n", methodLines));
+        }
+    }
+
+    @Benchmark
+    public void offsetSlicing(Blackhole bh) {
+        SourceFile source = new SourceFile("Large.java", content);
+        for (MethodDeclaration method : methods)
+            bh.consume(source.getLinesOf(method.getStartPosition(), method.getLength()));
+    }
+
+    @Benchmark
+    public void offsetSlicingToString(Blackhole bh) {
+        SourceFile source = new SourceFile("Large.java", content);
+        ArrayList<String> snippets = new ArrayList<>(methods.length);
+        for (MethodDeclaration method : methods)
+            snippets.add(source.getLinesOf(method.getStartPosition(), method.getLength()).toString());
+        bh.consume(snippets);
+    }
+}
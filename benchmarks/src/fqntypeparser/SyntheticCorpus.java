@@ -0,0 +1,232 @@
+package fqntypeparser;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Random;
+
+/**
+ * Writes a synthetic Maven-style project (pom.xml and src/main/java) to stand in for a real
+ * corpus. The output depends only on the settings and the seed, so runs at the same scale are
+ * comparable across machines. Generated code only uses the JDK, so it parses offline.
+ *
+ * Each class extends the previous class of its package, holds a few fields and a chain of
+ * nested static classes, and its methods mix JDK calls, calls into other generated classes
+ * and local arithmetic. The share of JDK calls is the library-call density.
+ *
+ * Usage: SyntheticCorpus outDir [-packages n] [-classes n] [-methods n] [-depth n]
+ * [-density d] [-seed n]
+ */
+public class SyntheticCorpus {
+    private static final String BASE_PACKAGE = "synthetic";
+    private static final int STATEMENTS_PER_METHOD = 8;
+
+    private int numOfPackages = 10, classesPerPackage = 10, methodsPerClass = 10, nestingDepth = 1;
+    private double libraryCallDensity = 0.5;
+    private long seed = 42;
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("Usage: SyntheticCorpus outDir [-packages n] [-classes n] [-methods n] [-depth n] [-density d] [-seed n]");
+            System.exit(1);
+        }
+        SyntheticCorpus corpus = new SyntheticCorpus();
+        corpus.configure(args, 1);
+        System.out.println(corpus.generate(new File(args[0])) + " source files written to " + args[0]);
+    }
+
+    /**
+     * Reads the -option value pairs of args from the given index on, and returns the first
+     * index it did not understand.
+     */
+    int configure(String[] args, int from) {
+        int i = from;
+        for (; i + 1 < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+            case "-packages":
+                numOfPackages = Integer.parseInt(value);
+                break;
+            case "-classes":
+                classesPerPackage = Integer.parseInt(value);
+                break;
+            case "-methods":
+                methodsPerClass = Integer.parseInt(value);
+                break;
+            case "-depth":
+                nestingDepth = Integer.parseInt(value);
+                break;
+            case "-density":
+                libraryCallDensity = Double.parseDouble(value);
+                break;
+            case "-seed":
+                seed = Long.parseLong(value);
+                break;
+            default:
+                return i;
+            }
+        }
+        return i;
+    }
+
+    public void setNumOfPackages(int numOfPackages) {
+        this.numOfPackages = numOfPackages;
+    }
+
+    public void setClassesPerPackage(int classesPerPackage) {
+        this.classesPerPackage = classesPerPackage;
+    }
+
+    public void setMethodsPerClass(int methodsPerClass) {
+        this.methodsPerClass = methodsPerClass;
+    }
+
+    /**
+     * Sets how many levels of nested classes, each with its own methods, every class has.
+     */
+    public void setNestingDepth(int nestingDepth) {
+        this.nestingDepth = nestingDepth;
+    }
+
+    /**
+     * Sets the share, between 0 and 1, of statements that call into the JDK.
+     */
+    public void setLibraryCallDensity(double libraryCallDensity) {
+        this.libraryCallDensity = libraryCallDensity;
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d packages x %d classes x %d methods, nesting depth %d, library-call density %.2f, seed %d",
+                numOfPackages, classesPerPackage, methodsPerClass, nestingDepth, libraryCallDensity, seed);
+    }
+
+    /**
+     * Writes the project into dir and returns the number of source files.
+     */
+    public int generate(File dir) throws IOException {
+        Random random = new Random(seed);
+        dir.mkdirs();
+        try (PrintWriter pom = new PrintWriter(new File(dir, "pom.xml"), "UTF-8")) {
+            pom.println("<project xmlns=\"http://maven.apache.org/POM/4.0.0\">");
+            pom.println("    <modelVersion>4.0.0</modelVersion>");
+            pom.println("    <groupId>" + BASE_PACKAGE + "</groupId>");
+            pom.println("    <artifactId>" + BASE_PACKAGE + "-corpus</artifactId>");
+            pom.println("    <version>1.0</version>");
+            pom.println("</project>");
+        }
+        File src = new File(dir, "src/main/java/" + BASE_PACKAGE);
+        int files = 0;
+        for (int p = 0; p < numOfPackages; p++) {
+            File pkg = new File(src, "p" + p);
+            pkg.mkdirs();
+            for (int c = 0; c < classesPerPackage; c++) {
+                StringBuilder sb = new StringBuilder();
+                writeClass(sb, p, c, random);
+                File file = new File(pkg, "C" + c + ".java");
+                Files.write(file.toPath(), sb.toString().getBytes(StandardCharsets.UTF_8));
+                files++;
+            }
+        }
+        return files;
+    }
+
+    private void writeClass(StringBuilder sb, int p, int c, Random random) {
+        sb.append("package ").append(BASE_PACKAGE).append(".p").append(p).append(";\n\n");
+        sb.append("import java.io.*;\n");
+        sb.append("import java.util.*;\n");
+        sb.append("import java.util.concurrent.ConcurrentHashMap;\n\n");
+        sb.append("/**\n * Generated class ").append(c).append(" of package p").append(p).append(".\n */\n");
+        sb.append("public class C").append(c);
+        if (c > 0)
+            sb.append(" extends C").append(c - 1);
+        sb.append(" {\n");
+        writeMembers(sb, p, c, 1, random);
+        sb.append("}\n");
+    }
+
+    private void writeMembers(StringBuilder sb, int p, int c, int level, Random random) {
+        String indent = indent(level);
+        sb.append(indent).append("protected List<String> names = new ArrayList<>();\n");
+        sb.append(indent).append("protected Map<String, Integer> counts = new HashMap<>();\n");
+        sb.append(indent).append("protected int[] values = new int[16];\n\n");
+        for (int m = 0; m < methodsPerClass; m++)
+            writeMethod(sb, p, c, m, level, random);
+        if (level <= nestingDepth) {
+            String inner = "N" + level;
+            sb.append(indent).append("public static class ").append(inner).append(" {\n");
+            writeMembers(sb, p, c, level + 1, random);
+            sb.append(indent).append("}\n");
+        }
+    }
+
+    private void writeMethod(StringBuilder sb, int p, int c, int m, int level, Random random) {
+        String indent = indent(level), body = indent(level + 1);
+        sb.append(indent).append("public int m").append(m).append("(int x, String s, List<? extends Number> xs) {\n");
+        sb.append(body).append("int r = x;\n");
+        sb.append(body).append("StringBuilder sb = new StringBuilder(s);\n");
+        for (int i = 0; i < STATEMENTS_PER_METHOD; i++) {
+            if (random.nextDouble() < libraryCallDensity)
+                sb.append(body).append(libraryCall(random)).append('\n');
+            else if (random.nextBoolean())
+                sb.append(body).append(projectCall(p, c, m, random)).append('\n');
+            else
+                sb.append(body).append("r = r * ").append(random.nextInt(31) + 1).append(" + ").append(i).append(";\n");
+        }
+        if (random.nextInt(4) == 0) {
+            sb.append(body).append("try {\n");
+            sb.append(body).append("    r += new File(s).getCanonicalPath().length();\n");
+            sb.append(body).append("} catch (IOException | SecurityException e) {\n");
+            sb.append(body).append("    r -= e.getMessage() == null ? 0 : e.getMessage().length();\n");
+            sb.append(body).append("}\n");
+        }
+        sb.append(body).append("return r + sb.length();\n");
+        sb.append(indent).append("}\n\n");
+    }
+
+    private static String libraryCall(Random random) {
+        switch (random.nextInt(10)) {
+        case 0:
+            return "r = Math.max(r, s.length());";
+        case 1:
+            return "sb.append(String.valueOf(r)).append(s.trim());";
+        case 2:
+            return "names.add(s.toUpperCase(Locale.ROOT));";
+        case 3:
+            return "counts.merge(s, 1, Integer::sum);";
+        case 4:
+            return "Collections.sort(names);";
+        case 5:
+            return "r += Arrays.hashCode(values);";
+        case 6:
+            return "for (Number n : xs) r += n.intValue();";
+        case 7:
+            return "{ Map<String, List<Integer>> groups = new ConcurrentHashMap<>(); groups.computeIfAbsent(s, k -> new ArrayList<>()).add(r); }";
+        case 8:
+            return "{ Object o = names.isEmpty() ? (Object) s : (Object) names.get(0); if (o instanceof String) r += ((String) o).hashCode(); }";
+        default:
+            return "sb.insert(0, String.format(\"%d:%s\", r, Objects.toString(s, \"\")));";
+        }
+    }
+
+    private String projectCall(int p, int c, int m, Random random) {
+        int op = random.nextInt(numOfPackages), oc = random.nextInt(classesPerPackage), om = random.nextInt(methodsPerClass);
+        String type = BASE_PACKAGE + ".p" + op + ".C" + oc;
+        if (random.nextBoolean())
+            return "r += new " + type + "().m" + om + "(r, s, xs);";
+        return "r += m" + (m == om ? 0 : om) + "(r - 1, sb.toString(), Collections.<Integer>emptyList());";
+    }
+
+    private static String indent(int level) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < level; i++)
+            sb.append("    ");
+        return sb.toString();
+    }
+}
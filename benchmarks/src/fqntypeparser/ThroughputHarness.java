@@ -0,0 +1,154 @@
+package fqntypeparser;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+/**
+ * Runs ProjectSequencesGenerator.generateSequences end to end on a synthetic corpus (see
+ * SyntheticCorpus) and reports files/s, methods/s, nodes/s, input and output MB/s and the peak
+ * heap of each run. The corpus is generated into a temporary directory unless -corpus names an
+ * existing one, and every run writes a fresh, non-incremental output.
+ *
+ * Usage: ThroughputHarness [-corpus dir] [-runs n] [-warmups n] [-threads n] [-batch n]
+ * [-binary true|false] [SyntheticCorpus options]
+ *
+ * e.g. java -cp target/benchmarks.jar fqntypeparser.ThroughputHarness -packages 20 -runs 3
+ */
+public class ThroughputHarness {
+    private File corpus;
+    private int runs = 3, warmups = 1, numOfThreads = 1, batchSize = 0;
+    private boolean binaryOutput = false;
+    private SyntheticCorpus generator = new SyntheticCorpus();
+
+    public static void main(String[] args) throws IOException {
+        ThroughputHarness harness = new ThroughputHarness();
+        harness.configure(args);
+        harness.run();
+    }
+
+    private void configure(String[] args) {
+        for (int i = 0; i < args.length; ) {
+            int next = generator.configure(args, i);
+            if (next > i) {
+                i = next;
+                continue;
+            }
+            if (i + 1 >= args.length)
+                throw new IllegalArgumentException("Missing value for " + args[i]);
+            String value = args[i + 1];
+            switch (args[i]) {
+            case "-corpus":
+                corpus = new File(value);
+                break;
+            case "-runs":
+                runs = Integer.parseInt(value);
+                break;
+            case "-warmups":
+                warmups = Integer.parseInt(value);
+                break;
+            case "-threads":
+                numOfThreads = Integer.parseInt(value);
+                break;
+            case "-batch":
+                batchSize = Integer.parseInt(value);
+                break;
+            case "-binary":
+                binaryOutput = Boolean.parseBoolean(value);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+            i += 2;
+        }
+    }
+
+    private void run() throws IOException {
+        File work = Files.createTempDirectory("fqn-throughput").toFile();
+        try {
+            File in = corpus;
+            if (in == null) {
+                in = new File(work, "corpus");
+                long start = System.nanoTime();
+                int files = generator.generate(in);
+                System.out.printf("Generated %d files (%s) in %.1f s%n", files, generator, (System.nanoTime() - start) / 1e9);
+            }
+            long numOfFiles = count(in, ".java"), inBytes = size(in, ".java");
+            System.out.printf("Corpus %s: %d files, %.2f MB, %d threads, batch size %d, %s output%n",
+                    in, numOfFiles, inBytes / 1e6, numOfThreads, batchSize, binaryOutput ? "binary" : "JSONL");
+            System.out.println("run      seconds    files/s  methods/s     nodes/s   in MB/s  out MB/s  peak heap MB");
+            double[] seconds = new double[runs];
+            for (int i = -warmups; i < runs; i++) {
+                File out = new File(work, "out" + (i + warmups));
+                System.gc();
+                resetPeakHeap();
+                ProjectSequencesGenerator psg = new ProjectSequencesGenerator(in.getAbsolutePath());
+                psg.setIncremental(false);
+                psg.setBatchSize(batchSize);
+                psg.setNumOfThreads(numOfThreads);
+                psg.setBinaryOutput(binaryOutput);
+                long start = System.nanoTime();
+                int numOfMethods = psg.generateSequences(false, null, out.getAbsolutePath());
+                double s = (System.nanoTime() - start) / 1e9;
+                long peakHeap = getPeakHeap(), outBytes = size(out, null);
+                System.out.printf("%-6s %9.2f %10.0f %10.0f %11.0f %9.2f %9.2f %13.0f%n", i < 0 ? "warmup" : Integer.toString(i + 1),
+                        s, numOfFiles / s, numOfMethods / s, psg.getNumOfNodes() / s, inBytes / 1e6 / s, outBytes / 1e6 / s, peakHeap / 1e6);
+                if (i >= 0)
+                    seconds[i] = s;
+                delete(out);
+            }
+            if (runs > 0) {
+                Arrays.sort(seconds);
+                System.out.printf("best %.2f s, median %.2f s%n", seconds[0], seconds[runs / 2]);
+            }
+        } finally {
+            delete(work);
+        }
+    }
+
+    private static void resetPeakHeap() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
+            if (pool.getType() == MemoryType.HEAP)
+                pool.resetPeakUsage();
+    }
+
+    // The sum of the pool peaks, which can be above the heap's actual peak.
+    private static long getPeakHeap() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
+            if (pool.getType() == MemoryType.HEAP)
+                peak += pool.getPeakUsage().getUsed();
+        return peak;
+    }
+
+    private static long count(File file, String extension) {
+        if (file.isDirectory()) {
+            long n = 0;
+            for (File sub : file.listFiles())
+                n += count(sub, extension);
+            return n;
+        }
+        return file.getName().endsWith(extension) ? 1 : 0;
+    }
+
+    private static long size(File file, String extension) {
+        if (file.isDirectory()) {
+            long n = 0;
+            for (File sub : file.listFiles())
+                n += size(sub, extension);
+            return n;
+        }
+        return extension == null || file.getName().endsWith(extension) ? file.length() : 0;
+    }
+
+    private static void delete(File file) {
+        if (file.isDirectory())
+            for (File sub : file.listFiles())
+                delete(sub);
+        file.delete();
+    }
+}
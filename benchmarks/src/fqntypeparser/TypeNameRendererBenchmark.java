@@ -0,0 +1,333 @@
+package fqntypeparser;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.jdt.core.dom.*;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Renders every type of a class full of nested generic, array, qualified, wildcard, union and
+ * intersection types, once with the string-concatenating formatters TypeNameRenderer replaced
+ * (copied below) and once with TypeNameRenderer. Setup fails if the two disagree on any type.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TypeNameRendererBenchmark {
+    private static final String SOURCE =
+            "package bench;\n"
+            + "import java.util.*;\n"
+            + "import java.io.*;\n"
+            + "public class Types<T extends Comparable<T> & Serializable> {\n"
+            + "    class Inner<E> {}\n"
+            + "    java.util.Map<String, List<int[][]>> a;\n"
+            + "    Map.Entry<String, ? extends java.lang.Number>[] b;\n"
+            + "    List<? super Map<String, Set<Long>>> c;\n"
+            + "    Types<T>.Inner<String>[][][] d;\n"
+            + "    java.util.concurrent.ConcurrentHashMap<java.lang.String, java.util.List<T[]>> e;\n"
+            + "    Map<List<Set<Map<String, Deque<Integer>>>>, Optional<T>>[] f;\n"
+            + "    long[][][][] g;\n"
+            + "    <U extends Number & Comparable<U>, V extends T> Map<U, List<? extends V>> m(List<? super U>[] x, java.io.File[][] y, Map.Entry<U, V> z) {\n"
+            + "        try {\n"
+            + "            Object o = (Comparable<String> & Serializable) null;\n"
+            + "            new FileInputStream(y[0][0]).close();\n"
+            + "        } catch (IOException | IllegalStateException | java.lang.UnsupportedOperationException ex) {\n"
+            + "        }\n"
+            + "        return null;\n"
+            + "    }\n"
+            + "}\n";
+
+    private Type[] types;
+    private HashSet<String> typeParameters = new HashSet<>();
+
+    @Setup
+    public void setup() {
+        @SuppressWarnings("rawtypes")
+        java.util.Map options = JavaCore.getOptions();
+        options.put(JavaCore.COMPILER_COMPLIANCE, JavaCore.VERSION_1_8);
+        options.put(JavaCore.COMPILER_CODEGEN_TARGET_PLATFORM, JavaCore.VERSION_1_8);
+        options.put(JavaCore.COMPILER_SOURCE, JavaCore.VERSION_1_8);
+        ASTParser parser = ASTParser.newParser(AST.JLS8);
+        parser.setCompilerOptions(options);
+        parser.setEnvironment(null, null, null, true);
+        parser.setResolveBindings(true);
+        parser.setUnitName("Types.java");
+        parser.setSource(SOURCE.toCharArray());
+        CompilationUnit ast = (CompilationUnit) parser.createAST(null);
+        final ArrayList<Type> all = new ArrayList<>();
+        ast.accept(new ASTVisitor() {
+            @Override
+            public void preVisit(ASTNode node) {
+                if (node instanceof Type)
+                    all.add((Type) node);
+            }
+        });
+        types = all.toArray(new Type[0]);
+        typeParameters.add("T");
+        typeParameters.add("U");
+        for (Type type : types) {
+            check(type, legacyUnresolvedType(type), TypeNameRenderer.getUnresolvedType(type));
+            check(type, legacyResolvedType(type), TypeNameRenderer.getResolvedType(type));
+            if (!type.isWildcardType() || ((WildcardType) type).getBound() != null) {
+                check(type, legacySimpleType(type), TypeNameRenderer.getSimpleType(type));
+                check(type, legacySimpleType(type, typeParameters), TypeNameRenderer.getSimpleType(type, typeParameters));
+            }
+        }
+    }
+
+    private static void check(Type type, String expected, String actual) {
+        if (!expected.equals(actual))
+            throw new IllegalStateException(type + ": expected " + expected + " but rendered " + actual);
+    }
+
+    @Benchmark
+    public void legacy(Blackhole bh) {
+        for (Type type : types) {
+            bh.consume(legacyUnresolvedType(type));
+            bh.consume(legacyResolvedType(type));
+            if (!type.isWildcardType() || ((WildcardType) type).getBound() != null) {
+                bh.consume(legacySimpleType(type));
+                bh.consume(legacySimpleType(type, typeParameters));
+            }
+        }
+    }
+
+    @Benchmark
+    public void renderer(Blackhole bh) {
+        for (Type type : types) {
+            bh.consume(TypeNameRenderer.getUnresolvedType(type));
+            bh.consume(TypeNameRenderer.getResolvedType(type));
+            if (!type.isWildcardType() || ((WildcardType) type).getBound() != null) {
+                bh.consume(TypeNameRenderer.getSimpleType(type));
+                bh.consume(TypeNameRenderer.getSimpleType(type, typeParameters));
+            }
+        }
+    }
+
+    // The formatters as they were before TypeNameRenderer.
+
+    static String legacyUnresolvedType(Type type) {
+        if (type.isArrayType()) {
+            ArrayType t = (ArrayType) type;
+            return legacyUnresolvedType(t.getElementType()) + legacyDimensions(t.getDimensions());
+        } else if (type.isIntersectionType()) {
+            IntersectionType it = (IntersectionType) type;
+            @SuppressWarnings("unchecked")
+            ArrayList<Type> types = new ArrayList<>(it.types());
+            String s = legacyUnresolvedType(types.get(0));
+            for (int i = 1; i < types.size(); i++)
+                s += " & " + legacyUnresolvedType(types.get(i));
+            return s;
+        } else if (type.isParameterizedType()) {
+            ParameterizedType t = (ParameterizedType) type;
+            return legacyUnresolvedType(t.getType());
+        } else if (type.isUnionType()) {
+            UnionType it = (UnionType) type;
+            @SuppressWarnings("unchecked")
+            ArrayList<Type> types = new ArrayList<>(it.types());
+            String s = legacyUnresolvedType(types.get(0));
+            for (int i = 1; i < types.size(); i++)
+                s += " | " + legacyUnresolvedType(types.get(i));
+            return s;
+        } else if (type.isNameQualifiedType()) {
+            NameQualifiedType qt = (NameQualifiedType) type;
+            return qt.getQualifier().getFullyQualifiedName() + "." + qt.getName().getIdentifier();
+        } else if (type.isPrimitiveType()) {
+            return type.toString();
+        } else if (type.isQualifiedType()) {
+            QualifiedType qt = (QualifiedType) type;
+            return legacyUnresolvedType(qt.getQualifier()) + "." + qt.getName().getIdentifier();
+        } else if (type.isSimpleType()) {
+            return type.toString();
+        } else if (type.isWildcardType()) {
+            WildcardType wt = (WildcardType) type;
+            String s = "?";
+            if (wt.getBound() != null) {
+                if (wt.isUpperBound())
+                    s += "extends ";
+                else
+                    s += "super ";
+                s += legacyUnresolvedType(wt.getBound());
+            }
+            return s;
+        }
+        return null;
+    }
+
+    static String legacyDimensions(int dimensions) {
+        String s = "";
+        for (int i = 0; i < dimensions; i++)
+            s += "[]";
+        return s;
+    }
+
+    static String legacyResolvedType(Type type) {
+        ITypeBinding tb = type.resolveBinding();
+        if (tb == null || tb.isRecovered())
+            return legacyUnresolvedType(type);
+        tb = tb.getTypeDeclaration();
+        if (tb.isLocal() || tb.getQualifiedName().isEmpty())
+            return legacyUnresolvedType(type);
+        if (type.isArrayType()) {
+            ArrayType t = (ArrayType) type;
+            return legacyResolvedType(t.getElementType()) + legacyDimensions(t.getDimensions());
+        } else if (type.isIntersectionType()) {
+            IntersectionType it = (IntersectionType) type;
+            @SuppressWarnings("unchecked")
+            ArrayList<Type> types = new ArrayList<>(it.types());
+            String s = legacyResolvedType(types.get(0));
+            for (int i = 1; i < types.size(); i++)
+                s += " & " + legacyResolvedType(types.get(i));
+            return s;
+        } else if (type.isParameterizedType()) {
+            ParameterizedType t = (ParameterizedType) type;
+            return legacyResolvedType(t.getType());
+        } else if (type.isUnionType()) {
+            UnionType it = (UnionType) type;
+            @SuppressWarnings("unchecked")
+            ArrayList<Type> types = new ArrayList<>(it.types());
+            String s = legacyResolvedType(types.get(0));
+            for (int i = 1; i < types.size(); i++)
+                s += " | " + legacyResolvedType(types.get(i));
+            return s;
+        } else if (type.isNameQualifiedType() || type.isQualifiedType() || type.isSimpleType()) {
+            return tb.getQualifiedName();
+        } else if (type.isPrimitiveType()) {
+            return type.toString();
+        } else if (type.isWildcardType()) {
+            WildcardType wt = (WildcardType) type;
+            String s = "?";
+            if (wt.getBound() != null) {
+                if (wt.isUpperBound())
+                    s += "extends ";
+                else
+                    s += "super ";
+                s += legacyResolvedType(wt.getBound());
+            }
+            return s;
+        }
+        return null;
+    }
+
+    static String legacySimpleType(Type type) {
+        if (type.isArrayType()) {
+            ArrayType t = (ArrayType) type;
+            String pt = legacySimpleType(t.getElementType());
+            for (int i = 0; i < t.getDimensions(); i++)
+                pt += "[]";
+            return pt;
+        } else if (type.isParameterizedType()) {
+            ParameterizedType t = (ParameterizedType) type;
+            return legacySimpleType(t.getType());
+        } else if (type.isPrimitiveType()) {
+            return type.toString();
+        } else if (type.isQualifiedType()) {
+            QualifiedType t = (QualifiedType) type;
+            return t.getName().getIdentifier();
+        } else if (type.isSimpleType()) {
+            SimpleType st = (SimpleType) type;
+            String pt = st.getName().getFullyQualifiedName();
+            if (st.getName() instanceof QualifiedName)
+                pt = legacySimpleName(st.getName());
+            if (pt.isEmpty())
+                pt = st.getName().getFullyQualifiedName();
+            return pt;
+        } else if (type.isIntersectionType()) {
+            IntersectionType it = (IntersectionType) type;
+            @SuppressWarnings("unchecked")
+            ArrayList<Type> types = new ArrayList<>(it.types());
+            String s = legacySimpleType(types.get(0));
+            for (int i = 1; i < types.size(); i++)
+                s += "&" + legacySimpleType(types.get(i));
+            return s;
+        } else if (type.isUnionType()) {
+            UnionType ut = (UnionType) type;
+            String s = legacySimpleType((Type) ut.types().get(0));
+            for (int i = 1; i < ut.types().size(); i++)
+                s += "|" + legacySimpleType((Type) ut.types().get(i));
+            return s;
+        } else if (type.isWildcardType()) {
+            WildcardType t = (WildcardType) type;
+            return legacySimpleType(t.getBound());
+        } else if (type.isNameQualifiedType()) {
+            NameQualifiedType nqt = (NameQualifiedType) type;
+            return nqt.getName().getIdentifier();
+        }
+        return type.toString();
+    }
+
+    static String legacySimpleType(Type type, HashSet<String> typeParameters) {
+        if (type.isArrayType()) {
+            ArrayType t = (ArrayType) type;
+            String pt = legacySimpleType(t.getElementType(), typeParameters);
+            for (int i = 0; i < t.getDimensions(); i++)
+                pt += "[]";
+            return pt;
+        } else if (type.isParameterizedType()) {
+            ParameterizedType t = (ParameterizedType) type;
+            return legacySimpleType(t.getType(), typeParameters);
+        } else if (type.isPrimitiveType()) {
+            return type.toString();
+        } else if (type.isQualifiedType()) {
+            QualifiedType t = (QualifiedType) type;
+            return t.getName().getIdentifier();
+        } else if (type.isSimpleType()) {
+            if (typeParameters.contains(type.toString()))
+                return "Object";
+            return type.toString();
+        } else if (type.isIntersectionType()) {
+            IntersectionType it = (IntersectionType) type;
+            @SuppressWarnings("unchecked")
+            ArrayList<Type> types = new ArrayList<>(it.types());
+            String s = legacySimpleType(types.get(0), typeParameters);
+            for (int i = 1; i < types.size(); i++)
+                s += "&" + legacySimpleType(types.get(i), typeParameters);
+            return s;
+        } else if (type.isUnionType()) {
+            UnionType ut = (UnionType) type;
+            String s = legacySimpleType((Type) ut.types().get(0), typeParameters);
+            for (int i = 1; i < ut.types().size(); i++)
+                s += "|" + legacySimpleType((Type) ut.types().get(i), typeParameters);
+            return s;
+        } else if (type.isWildcardType()) {
+            WildcardType t = (WildcardType) type;
+            return legacySimpleType(t.getBound(), typeParameters);
+        } else if (type.isNameQualifiedType()) {
+            NameQualifiedType nqt = (NameQualifiedType) type;
+            return nqt.getName().getIdentifier();
+        }
+        return type.toString();
+    }
+
+    static String legacySimpleName(Name name) {
+        if (name.isSimpleName()) {
+            SimpleName sn = (SimpleName) name;
+            if (Character.isUpperCase(sn.getIdentifier().charAt(0)))
+                return sn.getIdentifier();
+            return "";
+        }
+        QualifiedName qn = (QualifiedName) name;
+        if (Character.isUpperCase(qn.getFullyQualifiedName().charAt(0)))
+            return qn.getFullyQualifiedName();
+        String sqn = legacySimpleName(qn.getQualifier());
+        if (sqn.isEmpty())
+            return legacySimpleName(qn.getName());
+        return sqn + "." + qn.getName().getIdentifier();
+    }
+}
@@ -0,0 +1,52 @@
+package fqntypeparser;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Converts binary shards back to the JSONL records JsonlShardSink writes.
+ *
+ * Usage: BinaryShardConverter &lt;shard or directory&gt; [output directory]
+ */
+public class BinaryShardConverter {
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: BinaryShardConverter <shard or directory> [output directory]");
+            return;
+        }
+        File in = new File(args[0]);
+        File outDir = args.length > 1 ? new File(args[1]) : (in.isDirectory() ? in : in.getAbsoluteFile().getParentFile());
+        outDir.mkdirs();
+        File[] shards = in.isDirectory() ? in.listFiles() : new File[]{in};
+        for (File shard : shards) {
+            if (!shard.getName().endsWith(BinaryShardSink.EXTENSION))
+                continue;
+            String name = shard.getName();
+            name = name.substring(0, name.length() - BinaryShardSink.EXTENSION.length()) + JsonlShardSink.EXTENSION;
+            int n = convert(shard, new File(outDir, name));
+            System.out.println(shard + ": " + n + " records");
+        }
+    }
+
+    public static int convert(File shard, File jsonl) throws IOException {
+        int n = 0;
+        try (BinaryShardReader reader = new BinaryShardReader(shard);
+                Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(jsonl), StandardCharsets.UTF_8), 1 << 16)) {
+            StringBuilder sb = new StringBuilder(4096);
+            SequenceRecord record;
+            while ((record = reader.next()) != null) {
+                sb.setLength(0);
+                record.appendJson(sb);
+                sb.append('\n');
+                writer.append(sb);
+                n++;
+            }
+        }
+        return n;
+    }
+}
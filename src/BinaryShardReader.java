@@ -0,0 +1,130 @@
+package fqntypeparser;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+
+/**
+ * Reads the records of a shard written by BinaryShardSink, in order.
+ */
+public class BinaryShardReader implements Closeable {
+    private InputStream in;
+    private ArrayList<String> dictionary = new ArrayList<>();
+    private byte[] bytes = new byte[256];
+
+    public BinaryShardReader(File shard) throws IOException {
+        in = new BufferedInputStream(new FileInputStream(shard), 1 << 16);
+        for (byte b : BinaryShardSink.MAGIC)
+            if (in.read() != b)
+                throw new IOException("Not a binary sequence shard: " + shard);
+        int version = in.read();
+        if (version != BinaryShardSink.VERSION)
+            throw new IOException("Unsupported shard version " + version + ": " + shard);
+    }
+
+    /**
+     * Returns the next record, or null at the end of the shard.
+     */
+    public SequenceRecord next() throws IOException {
+        int first = in.read();
+        if (first == -1)
+            return null;
+        String path = readString(readVarint(first));
+        String typeName = readString(), signature = readString(), methodSnippet = readString();
+        int size = readVarint();
+        ArrayList<NodeRecord> nodeInfo = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            int fields = readByte();
+            NodeRecord node = new NodeRecord();
+            if ((fields & (1 << NodeRecord.DEBUG_TEXT)) != 0)
+                node.setDebugText(readString());
+            if ((fields & (1 << NodeRecord.UNRESOLVED_TYPE)) != 0)
+                node.setUnresolvedType(readString());
+            if ((fields & (1 << NodeRecord.RESOLVED_TYPE)) != 0)
+                node.setResolvedType(readString());
+            if ((fields & (1 << NodeRecord.PARTIAL)) != 0)
+                node.setPartial(readString());
+            if ((fields & (1 << NodeRecord.FULL)) != 0)
+                node.setFull(readString());
+            if ((fields & (1 << NodeRecord.NODE_TYPE)) != 0) {
+                int type = readByte();
+                node.setNodeType(type == 0 ? null : NodeType.valueOf(type - 1));
+            }
+            if ((fields & (1 << NodeRecord.START)) != 0) {
+                int start = unzigzag(readVarint());
+                node.setOffsets(start, start + unzigzag(readVarint()));
+            }
+            nodeInfo.add(node);
+        }
+        return new SequenceRecord(path, typeName, signature, methodSnippet, nodeInfo);
+    }
+
+    private String readString() throws IOException {
+        return readString(readVarint());
+    }
+
+    private String readString(int ref) throws IOException {
+        if (ref == BinaryShardSink.NULL)
+            return null;
+        if (ref == BinaryShardSink.LITERAL)
+            return readUtf8();
+        int id = ref - BinaryShardSink.DICTIONARY;
+        if (id < dictionary.size())
+            return dictionary.get(id);
+        if (id != dictionary.size())
+            throw new IOException("Corrupt string reference " + ref);
+        String s = readUtf8();
+        dictionary.add(s);
+        return s;
+    }
+
+    private String readUtf8() throws IOException {
+        int length = readVarint();
+        if (bytes.length < length)
+            bytes = new byte[Math.max(length, bytes.length * 2)];
+        int offset = 0;
+        while (offset < length) {
+            int n = in.read(bytes, offset, length - offset);
+            if (n == -1)
+                throw new EOFException();
+            offset += n;
+        }
+        return new String(bytes, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private int readByte() throws IOException {
+        int b = in.read();
+        if (b == -1)
+            throw new EOFException();
+        return b;
+    }
+
+    private int readVarint() throws IOException {
+        return readVarint(readByte());
+    }
+
+    private int readVarint(int b) throws IOException {
+        int value = b & 0x7f, shift = 7;
+        while ((b & 0x80) != 0) {
+            b = readByte();
+            value |= (b & 0x7f) << shift;
+            shift += 7;
+        }
+        return value;
+    }
+
+    private static int unzigzag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
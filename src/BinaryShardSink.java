@@ -0,0 +1,204 @@
+package fqntypeparser;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Writes method records to rolling binary shards (sequences-00000.fqnb, ...).
+ *
+ * A shard starts with the magic bytes FQNB and a version byte, followed by the records. Strings
+ * are written as a varint reference: 0 is null, 1 is a literal that follows as a varint byte
+ * length and UTF-8 bytes, and r >= 2 refers to entry r - 2 of the shard's string dictionary. A
+ * reference equal to the current dictionary size defines the next entry, whose bytes follow.
+ * Paths, type names, signatures, types and the partial and full method names go through the
+ * dictionary, snippets and debug texts are literals.
+ *
+ * A record is: path, type name, signature, method snippet, varint node count, nodes. A node is
+ * the NodeRecord field bit set as one byte, then the present fields in that order: strings as
+ * above, nodeType as one byte holding the NodeType ordinal + 1 (0 means null), start as a zigzag
+ * varint and end as a zigzag varint delta from start.
+ */
+public class BinaryShardSink implements SequenceSink {
+    public static final String PREFIX = JsonlShardSink.PREFIX, EXTENSION = ".fqnb";
+    static final byte[] MAGIC = {'F', 'Q', 'N', 'B'};
+    static final int VERSION = 1;
+    static final int NULL = 0, LITERAL = 1, DICTIONARY = 2;
+
+    private File dir;
+    private long shardSize;
+    private int nextShard;
+    private File current;
+    private OutputStream out;
+    private long currentSize = 0, bytesWritten = 0;
+    private SymbolTable symbols;
+    // shard dictionary id of the symbol ids in the current shard, cleared on roll
+    private HashMap<Integer, Integer> dictionary = new HashMap<>();
+    private ByteArrayOutputStream buffer = new ByteArrayOutputStream(1 << 12);
+
+    public BinaryShardSink(String outPath) {
+        this(outPath, JsonlShardSink.DEFAULT_SHARD_SIZE, new SymbolTable());
+    }
+
+    public BinaryShardSink(String outPath, long shardSize, SymbolTable symbols) {
+        this.dir = new File(outPath);
+        this.shardSize = shardSize;
+        this.symbols = symbols;
+        dir.mkdirs();
+        nextShard = JsonlShardSink.getNextShardIndex(dir, PREFIX, EXTENSION);
+    }
+
+    private BinaryShardSink(File file, SymbolTable symbols) throws IOException {
+        this.shardSize = Long.MAX_VALUE;
+        this.symbols = symbols;
+        open(file);
+    }
+
+    @Override
+    public synchronized String write(SequenceRecord record) throws IOException {
+        if (out == null || (currentSize > MAGIC.length + 1 && currentSize >= shardSize))
+            roll();
+        buffer.reset();
+        encode(record, buffer);
+        buffer.writeTo(out);
+        currentSize += buffer.size();
+        bytesWritten += buffer.size();
+        return current.getAbsolutePath();
+    }
+
+    @Override
+    public synchronized long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    private void roll() throws IOException {
+        if (out != null)
+            out.close();
+        open(JsonlShardSink.getShardFile(dir, PREFIX, nextShard++, EXTENSION));
+    }
+
+    private void open(File file) throws IOException {
+        current = file;
+        out = new BufferedOutputStream(new FileOutputStream(current), 1 << 16);
+        out.write(MAGIC);
+        out.write(VERSION);
+        currentSize = MAGIC.length + 1;
+        bytesWritten += currentSize;
+        dictionary.clear();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (out != null) {
+            out.close();
+            out = null;
+        }
+    }
+
+    @Override
+    public synchronized void clear() throws IOException {
+        JsonlShardSink.deleteShards(dir, PREFIX);
+        nextShard = 0;
+    }
+
+    @Override
+    public synchronized void remove(Set<String> outputs, Set<String> sourcePaths) throws IOException {
+        if (sourcePaths.isEmpty())
+            return;
+        for (String output : outputs) {
+            File shard = new File(output);
+            if (!shard.exists() || shard.equals(current))
+                continue;
+            File tmp = new File(shard.getPath() + ".tmp");
+            int kept = 0;
+            try {
+                try (BinaryShardReader reader = new BinaryShardReader(shard); BinaryShardSink writer = new BinaryShardSink(tmp, symbols)) {
+                    SequenceRecord record;
+                    while ((record = reader.next()) != null) {
+                        if (sourcePaths.contains(record.getPath()))
+                            continue;
+                        writer.write(record);
+                        kept++;
+                    }
+                }
+                // the shard is only replaced once the rewrite is complete
+                if (kept == 0)
+                    Files.delete(shard.toPath());
+                else
+                    FileUtil.replace(tmp, shard);
+            } finally {
+                Files.deleteIfExists(tmp.toPath());
+            }
+        }
+    }
+
+    private void encode(SequenceRecord record, ByteArrayOutputStream out) {
+        writeString(out, record.getPath(), true);
+        writeString(out, record.getTypeName(), true);
+        writeString(out, record.getSignature(), true);
+        writeString(out, record.getMethodSnippet(), false);
+        List<NodeRecord> nodeInfo = record.getNodeInfo();
+        writeVarint(out, nodeInfo.size());
+        for (NodeRecord node : nodeInfo) {
+            out.write(node.getFields());
+            if (node.has(NodeRecord.DEBUG_TEXT))
+                writeString(out, node.getDebugText(), false);
+            if (node.has(NodeRecord.UNRESOLVED_TYPE))
+                writeString(out, node.getUnresolvedType(), true);
+            if (node.has(NodeRecord.RESOLVED_TYPE))
+                writeString(out, node.getResolvedType(), true);
+            if (node.has(NodeRecord.PARTIAL))
+                writeString(out, node.getPartial(), true);
+            if (node.has(NodeRecord.FULL))
+                writeString(out, node.getFull(), true);
+            if (node.has(NodeRecord.NODE_TYPE))
+                out.write(node.getNodeType() == null ? 0 : node.getNodeType().ordinal() + 1);
+            if (node.has(NodeRecord.START)) {
+                writeVarint(out, zigzag(node.getStart()));
+                writeVarint(out, zigzag(node.getEnd() - node.getStart()));
+            }
+        }
+    }
+
+    private void writeString(ByteArrayOutputStream out, CharSequence s, boolean shared) {
+        if (s == null) {
+            writeVarint(out, NULL);
+            return;
+        }
+        String str = s.toString();
+        if (shared) {
+            Integer symbol = symbols.id(str), entry = dictionary.get(symbol);
+            if (entry != null) {
+                writeVarint(out, DICTIONARY + entry);
+                return;
+            }
+            entry = dictionary.size();
+            dictionary.put(symbol, entry);
+            writeVarint(out, DICTIONARY + entry);
+        } else
+            writeVarint(out, LITERAL);
+        byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+        writeVarint(out, bytes.length);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    static void writeVarint(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7f) != 0) {
+            out.write((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    static int zigzag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+}
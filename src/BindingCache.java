@@ -0,0 +1,113 @@
+package fqntypeparser;
+
+import java.util.HashMap;
+
+import org.eclipse.jdt.core.dom.IBinding;
+import org.eclipse.jdt.core.dom.IMethodBinding;
+import org.eclipse.jdt.core.dom.ITypeBinding;
+
+/**
+ * Memoizes the strings FQNSequenceGenerator renders from bindings. It lives as long as one
+ * createASTs batch and is only used by the thread running that batch.
+ *
+ * Entries are keyed by IBinding.getKey(), never by the binding itself: a binding references
+ * its resolver and through it the whole AST of its unit, which must not outlive acceptAST.
+ */
+public class BindingCache implements TypeNameRenderer.DeclarationNames {
+    private static final String NONE = new String("");
+
+    private SymbolTable symbols;
+    private HashMap<String, String> signatures = new HashMap<>();
+    private HashMap<String, String> qualifiedNames = new HashMap<>();
+    private HashMap<String, String> names = new HashMap<>();
+    private HashMap<String, String> declarationNames = new HashMap<>();
+    private long hits = 0, misses = 0;
+
+    public BindingCache(SymbolTable symbols) {
+        this.symbols = symbols;
+    }
+
+    public SymbolTable getSymbolTable() {
+        return symbols;
+    }
+
+    /**
+     * Returns the declaring class's qualified name followed by "." and the method name.
+     */
+    public String getSignature(IMethodBinding method) {
+        String key = method.getKey();
+        String s = lookup(signatures, key);
+        if (s == null) {
+            s = method.getDeclaringClass().getTypeDeclaration().getQualifiedName() + "." + method.getName();
+            s = store(signatures, key, s);
+        }
+        return s;
+    }
+
+    public String getQualifiedName(ITypeBinding tb) {
+        String key = tb.getKey();
+        String s = lookup(qualifiedNames, key);
+        if (s == null) {
+            if (tb.isArray())
+                s = getQualifiedName(tb.getComponentType().getTypeDeclaration()) + TypeNameRenderer.getDimensions(tb.getDimensions());
+            else
+                s = tb.getQualifiedName();
+            s = store(qualifiedNames, key, s);
+        }
+        return s;
+    }
+
+    public String getName(ITypeBinding tb) {
+        String key = tb.getKey();
+        String s = lookup(names, key);
+        if (s == null) {
+            if (tb.isArray())
+                s = getName(tb.getComponentType().getTypeDeclaration()) + TypeNameRenderer.getDimensions(tb.getDimensions());
+            else
+                s = tb.getName();
+            s = store(names, key, s);
+        }
+        return s;
+    }
+
+    /**
+     * Returns the qualified name of the type declaration of a resolved type binding, or null if
+     * the declaration is local or anonymous.
+     */
+    @Override
+    public String getDeclarationName(ITypeBinding tb) {
+        String key = tb.getKey();
+        String s = lookup(declarationNames, key);
+        if (s == null) {
+            ITypeBinding decl = tb.getTypeDeclaration();
+            s = decl.isLocal() || decl.getQualifiedName().isEmpty() ? NONE : decl.getQualifiedName();
+            s = store(declarationNames, key, s);
+        }
+        return s == NONE ? null : s;
+    }
+
+    private String lookup(HashMap<String, String> cache, String key) {
+        String s = key == null ? null : cache.get(key);
+        if (s != null)
+            hits++;
+        else
+            misses++;
+        return s;
+    }
+
+    private String store(HashMap<String, String> cache, String key, String s) {
+        if (s != NONE)
+            s = symbols.intern(s);
+        if (key != null)
+            cache.put(key, s);
+        return s;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+}
@@ -0,0 +1,238 @@
+package fqntypeparser;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Builds the classpath handed to the parser from the jars found in a project. Every jar is
+ * opened in parallel to check that its zip central directory is readable and that it contains
+ * classes at all, so corrupt, empty, sources and javadoc jars are dropped. The remaining jars
+ * are grouped by artifact (groupId, artifactId and version from the pom.properties the jar
+ * carries, the classifier from what its name adds to them, or all of them parsed from its name
+ * if it carries none) and only one version per artifact is kept, as chosen by the
+ * VersionPolicy. Jars of unknown version are always kept.
+ */
+public class ClasspathBuilder {
+    public enum VersionPolicy {
+        /** Keep the highest version of an artifact, the one a build resolving conflicts would pick. */
+        HIGHEST,
+        /** Keep the lowest version of an artifact. */
+        LOWEST,
+        /** Keep every version, only dropping invalid jars. */
+        ALL
+    }
+
+    private final VersionPolicy policy;
+    private int numOfThreads = Runtime.getRuntime().availableProcessors();
+    private int numOfInvalid = 0, numOfDuplicates = 0;
+
+    static class Jar {
+        File file;
+        String groupId, artifactId, version, classifier;
+        boolean valid;
+
+        String getKey() {
+            return groupId + ":" + artifactId + ":" + classifier;
+        }
+    }
+
+    public ClasspathBuilder(VersionPolicy policy) {
+        this.policy = policy;
+    }
+
+    public void setNumOfThreads(int numOfThreads) {
+        this.numOfThreads = Math.max(1, numOfThreads);
+    }
+
+    /**
+     * The number of jars dropped by the last build because they could not be read or had no
+     * classes.
+     */
+    public int getNumOfInvalid() {
+        return numOfInvalid;
+    }
+
+    /**
+     * The number of jars dropped by the last build because another version of the same artifact
+     * was kept.
+     */
+    public int getNumOfDuplicates() {
+        return numOfDuplicates;
+    }
+
+    /**
+     * Returns the absolute paths of the jars to parse against, sorted.
+     */
+    public String[] build(Collection<File> jarFiles) {
+        List<Jar> jars = inspect(jarFiles);
+        numOfInvalid = 0;
+        numOfDuplicates = 0;
+        ArrayList<Jar> valid = new ArrayList<>();
+        for (Jar jar : jars) {
+            if (jar.valid)
+                valid.add(jar);
+            else
+                numOfInvalid++;
+        }
+        assignUnknownGroups(valid);
+        HashMap<String, Jar> kept = new HashMap<>();
+        ArrayList<String> paths = new ArrayList<>();
+        for (Jar jar : valid) {
+            if (jar.version == null || policy == VersionPolicy.ALL) {
+                paths.add(jar.file.getAbsolutePath());
+                continue;
+            }
+            Jar other = kept.get(jar.getKey());
+            if (other != null) {
+                numOfDuplicates++;
+                if (!isPreferred(jar, other))
+                    continue;
+            }
+            kept.put(jar.getKey(), jar);
+        }
+        for (Jar jar : kept.values())
+            paths.add(jar.file.getAbsolutePath());
+        Collections.sort(paths);
+        return paths.toArray(new String[0]);
+    }
+
+    private boolean isPreferred(Jar jar, Jar other) {
+        int c = DependencyResolver.compareVersions(jar.version, other.version);
+        if (c == 0)
+            return jar.file.getAbsolutePath().compareTo(other.file.getAbsolutePath()) < 0;
+        return policy == VersionPolicy.HIGHEST ? c > 0 : c < 0;
+    }
+
+    // A jar without pom.properties joins the group of the artifact with the same name, if
+    // there is exactly one such group.
+    private static void assignUnknownGroups(List<Jar> jars) {
+        HashMap<String, String> groups = new HashMap<>();
+        for (Jar jar : jars) {
+            if (jar.groupId == null || jar.version == null)
+                continue;
+            String group = groups.get(jar.artifactId);
+            if (group == null)
+                groups.put(jar.artifactId, jar.groupId);
+            else if (!group.equals(jar.groupId))
+                groups.put(jar.artifactId, "");
+        }
+        for (Jar jar : jars) {
+            if (jar.groupId != null)
+                continue;
+            String group = groups.get(jar.artifactId);
+            jar.groupId = group != null && !group.isEmpty() ? group : "?";
+        }
+    }
+
+    private List<Jar> inspect(Collection<File> jarFiles) {
+        ArrayList<Jar> jars = new ArrayList<>(jarFiles.size());
+        if (jarFiles.isEmpty())
+            return jars;
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(numOfThreads, jarFiles.size()));
+        try {
+            ArrayList<Future<Jar>> futures = new ArrayList<>();
+            for (final File file : jarFiles)
+                futures.add(executor.submit(() -> inspect(file)));
+            for (Future<Jar> future : futures)
+                jars.add(future.get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            executor.shutdown();
+        }
+        return jars;
+    }
+
+    static Jar inspect(File file) {
+        Jar jar = new Jar();
+        jar.file = file;
+        parseName(file.getName(), jar);
+        if (file.length() == 0)
+            return jar;
+        // opening the zip reads its central directory, which fails for truncated files
+        try (ZipFile zip = new ZipFile(file)) {
+            ArrayList<ZipEntry> poms = new ArrayList<>();
+            Enumeration<? extends ZipEntry> entries = zip.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                String name = entry.getName();
+                if (name.endsWith(".class"))
+                    jar.valid = true;
+                else if (name.startsWith("META-INF/maven/") && name.endsWith("/pom.properties"))
+                    poms.add(entry);
+            }
+            readCoordinates(zip, poms, jar);
+        } catch (IOException | RuntimeException e) {
+            jar.valid = false;
+        }
+        return jar;
+    }
+
+    // The name alone does not tell where the version starts, e.g. log4j-1.2-api-2.17.0.jar, so
+    // the coordinates come from the jar's pom.properties. A jar that bundles others carries
+    // theirs too: its own are the longest ones its name starts with, or the only ones it has.
+    private static void readCoordinates(ZipFile zip, List<ZipEntry> poms, Jar jar) throws IOException {
+        String base = getBaseName(jar.file.getName());
+        String groupId = null, artifactId = null, version = null;
+        for (ZipEntry entry : poms) {
+            Properties properties = new Properties();
+            try (InputStream in = zip.getInputStream(entry)) {
+                properties.load(in);
+            }
+            String g = properties.getProperty("groupId"), a = properties.getProperty("artifactId"), v = properties.getProperty("version");
+            if (g == null || g.isEmpty() || a == null || a.isEmpty() || v == null || v.isEmpty())
+                continue;
+            String prefix = a + "-" + v;
+            boolean named = base.equals(prefix) || base.startsWith(prefix + "-");
+            if ((named || poms.size() == 1) && (artifactId == null || prefix.length() > (artifactId + "-" + version).length())) {
+                groupId = g;
+                artifactId = a;
+                version = v;
+            }
+        }
+        if (groupId == null)
+            return;
+        String prefix = artifactId + "-" + version;
+        jar.groupId = groupId;
+        jar.artifactId = artifactId;
+        jar.version = version;
+        jar.classifier = base.startsWith(prefix + "-") ? base.substring(prefix.length() + 1) : "";
+    }
+
+    private static String getBaseName(String name) {
+        return name.endsWith(".jar") ? name.substring(0, name.length() - 4) : name;
+    }
+
+    // artifactId-version[-classifier].jar, the version starting at the first dash followed by
+    // a digit, for jars without pom.properties. Without a version, the whole name identifies
+    // the jar.
+    static void parseName(String name, Jar jar) {
+        String base = getBaseName(name);
+        jar.artifactId = base;
+        jar.classifier = "";
+        for (int i = 0; i + 1 < base.length(); i++) {
+            if (base.charAt(i) == '-' && Character.isDigit(base.charAt(i + 1)) && i > 0) {
+                jar.artifactId = base.substring(0, i);
+                jar.version = base.substring(i + 1);
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package fqntypeparser;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
+
+/**
+ * Persisted result of the dependency discovery of a project: the jar paths it resolved, keyed
+ * by a fingerprint of the project's build files and of the jars it ships outside its lib
+ * directory (to which the generator adds the resolver's repositories and offline setting).
+ * Only complete classpaths are recorded. The jars in the lib directory, where dependencies
+ * are fetched to, are recorded as they were after the discovery. While neither changes, a
+ * rerun can reuse the jar paths without parsing a build file or touching the network.
+ */
+public class ClasspathManifest {
+    public static final String FILE_NAME = ".classpath.json";
+
+    private File file, libDir;
+    private String fingerprint = "", libJars = "";
+    private String[] jarPaths;
+
+    private ClasspathManifest(File libDir) {
+        this.libDir = libDir;
+        this.file = new File(libDir, FILE_NAME);
+    }
+
+    /**
+     * Loads the manifest kept in the lib directory of a project, or returns an empty one.
+     */
+    public static ClasspathManifest load(File libDir) {
+        ClasspathManifest manifest = new ClasspathManifest(libDir);
+        if (!manifest.file.exists())
+            return manifest;
+        try (Reader reader = new InputStreamReader(new FileInputStream(manifest.file), StandardCharsets.UTF_8)) {
+            JSONObject json = (JSONObject) new JSONParser().parse(reader);
+            String fingerprint = (String) json.get("fingerprint"), libJars = (String) json.get("lib");
+            JSONArray jars = (JSONArray) json.get("jars");
+            String[] jarPaths = new String[jars.size()];
+            for (int i = 0; i < jarPaths.length; i++)
+                jarPaths[i] = (String) jars.get(i);
+            manifest.fingerprint = fingerprint;
+            manifest.libJars = libJars;
+            manifest.jarPaths = jarPaths;
+        } catch (IOException | ParseException | RuntimeException e) {
+            System.err.println("Ignoring unreadable classpath manifest " + manifest.file + ": " + e);
+        }
+        return manifest;
+    }
+
+    /**
+     * Returns the recorded jar paths if they were resolved for the given fingerprint and the lib
+     * directory still holds the same jars, or null if the classpath must be resolved again.
+     */
+    public String[] getJarPaths(String fingerprint) {
+        if (jarPaths == null || !fingerprint.equals(this.fingerprint) || !getLibJars(libDir).equals(libJars))
+            return null;
+        return jarPaths.clone();
+    }
+
+    /**
+     * Records the jar paths resolved for the fingerprint, along with the current jars of the
+     * lib directory.
+     */
+    public void update(String fingerprint, String[] jarPaths) {
+        this.fingerprint = fingerprint;
+        this.jarPaths = jarPaths.clone();
+        this.libJars = getLibJars(libDir);
+    }
+
+    /**
+     * Replaces the manifest file atomically, see FileUtil.writeAtomically.
+     */
+    @SuppressWarnings("unchecked")
+    public void save() throws IOException {
+        JSONObject json = new JSONObject();
+        json.put("fingerprint", fingerprint);
+        json.put("lib", libJars);
+        JSONArray jars = new JSONArray();
+        if (jarPaths != null)
+            Collections.addAll(jars, jarPaths);
+        json.put("jars", jars);
+        libDir.mkdirs();
+        FileUtil.writeAtomically(file, json.toJSONString());
+    }
+
+    /**
+     * Returns the fingerprint of the build files (pom.xml, build.gradle) under the project
+     * directory, by content, and of its jars outside the lib directory, by size and modification
+     * time. Walking the tree is all it costs, nothing is parsed.
+     */
+    public static String getFingerprint(File projectDir, File libDir) {
+        ArrayList<String> entries = new ArrayList<>();
+        addEntries(projectDir, libDir.getAbsoluteFile(), entries);
+        Collections.sort(entries);
+        StringBuilder sb = new StringBuilder();
+        for (String entry : entries)
+            sb.append(entry).append('\n');
+        return FileUtil.getHash(sb.toString().getBytes());
+    }
+
+    private static void addEntries(File file, File excluded, ArrayList<String> entries) {
+        if (file.isDirectory()) {
+            if (file.getAbsoluteFile().equals(excluded))
+                return;
+            File[] subs = file.listFiles();
+            if (subs != null)
+                for (File sub : subs)
+                    addEntries(sub, excluded, entries);
+        } else if (file.getName().endsWith(".jar")) {
+            entries.add(file.getAbsolutePath() + '|' + file.length() + '|' + file.lastModified());
+        } else if (file.getName().equals("pom.xml") || file.getName().equals("build.gradle")) {
+            entries.add(file.getAbsolutePath() + '|' + FileUtil.getFileHash(file.getAbsolutePath()));
+        }
+    }
+
+    private static String getLibJars(File libDir) {
+        ArrayList<String> entries = new ArrayList<>();
+        addEntries(libDir, null, entries);
+        Collections.sort(entries);
+        return FileUtil.getHash(String.join("\n", entries).getBytes());
+    }
+}
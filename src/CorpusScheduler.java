@@ -0,0 +1,178 @@
+package fqntypeparser;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs several corpora concurrently on a bounded pool. Every corpus gets its own
+ * ProjectSequencesGenerator and therefore its own ASTParser environment.
+ */
+public class CorpusScheduler {
+    private int poolSize, batchSize = 0, numOfBatchThreads = 1;
+    private boolean testing = false, forceClasspathResolution = false;
+    private ArrayList<Corpus> corpora = new ArrayList<>();
+    private long makespan = -1;
+    private SymbolTable symbols = new SymbolTable();
+
+    public CorpusScheduler(int poolSize) {
+        this.poolSize = Math.max(1, poolSize);
+    }
+
+    public CorpusScheduler(int poolSize, boolean testing) {
+        this(poolSize);
+        this.testing = testing;
+    }
+
+    /**
+     * Shards every corpus into createASTs batches of the given size, parsed by the given
+     * number of threads per corpus.
+     */
+    public void setBatching(int batchSize, int numOfBatchThreads) {
+        this.batchSize = batchSize;
+        this.numOfBatchThreads = numOfBatchThreads;
+    }
+
+    /**
+     * Discovers and fetches the dependencies of every corpus again instead of reusing the
+     * classpath of the last run, see ProjectSequencesGenerator.setForceClasspathResolution.
+     */
+    public void setForceClasspathResolution(boolean forceClasspathResolution) {
+        this.forceClasspathResolution = forceClasspathResolution;
+    }
+
+    public Corpus add(String name, String inPath, String lib, String outPath) {
+        Corpus corpus = new Corpus(name, inPath, lib, outPath);
+        corpora.add(corpus);
+        return corpus;
+    }
+
+    /**
+     * Adds a corpus whose sequences are routed to several libraries in a single pass, see
+     * ProjectSequencesGenerator.generateSequencesByLibrary.
+     */
+    public Corpus add(String name, String inPath, Collection<String> libs, String outPath) {
+        Corpus corpus = new Corpus(name, inPath, null, outPath);
+        corpus.libs = libs;
+        corpora.add(corpus);
+        return corpus;
+    }
+
+    public SymbolTable getSymbolTable() {
+        return symbols;
+    }
+
+    public List<Corpus> getCorpora() {
+        return corpora;
+    }
+
+    /**
+     * Wall time in milliseconds from the first submission until the last corpus finished,
+     * or -1 if the scheduler has not run yet.
+     */
+    public long getMakespan() {
+        return makespan;
+    }
+
+    public long run() throws InterruptedException {
+        if (corpora.isEmpty()) {
+            makespan = 0;
+            return makespan;
+        }
+        int threads = Math.min(poolSize, corpora.size());
+        NotifyingBlockingThreadPoolExecutorUtil executor = new NotifyingBlockingThreadPoolExecutorUtil(threads, threads, 1, TimeUnit.MINUTES);
+        long start = System.currentTimeMillis();
+        for (final Corpus corpus : corpora) {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    corpus.run(testing, batchSize, numOfBatchThreads, forceClasspathResolution, symbols);
+                    System.out.println("Finish parsing corpus " + corpus.name + " in " + corpus.wallTime / 1000
+                            + "s (" + corpus.numOfSequences + " sequences)");
+                }
+            });
+        }
+        executor.await();
+        // await() may return early if the pool went idle between two submissions
+        executor.shutdown();
+        executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        makespan = System.currentTimeMillis() - start;
+        return makespan;
+    }
+
+    public void printSummary() {
+        long total = 0;
+        for (Corpus corpus : corpora) {
+            System.out.println(corpus.name + "\t" + corpus.wallTime / 1000 + "s\t" + corpus.numOfSequences
+                    + "\t" + String.format("%.1f%% resolved", 100 * corpus.resolutionRate)
+                    + (corpus.error == null ? "" : "\tFAILED: " + corpus.error));
+            total += corpus.wallTime;
+        }
+        System.out.println("Sum of corpus times " + total / 1000 + "s, makespan " + makespan / 1000 + "s");
+        System.out.println("Symbol table: " + symbols);
+    }
+
+    public static class Corpus {
+        private String name, inPath, lib, outPath;
+        private Collection<String> libs;
+        private long wallTime = -1;
+        private int numOfSequences = 0;
+        private double resolutionRate = -1;
+        private Throwable error;
+
+        private Corpus(String name, String inPath, String lib, String outPath) {
+            this.name = name;
+            this.inPath = inPath;
+            this.lib = lib;
+            this.outPath = outPath;
+        }
+
+        private void run(boolean testing, int batchSize, int numOfBatchThreads, boolean forceClasspathResolution, SymbolTable symbols) {
+            long start = System.currentTimeMillis();
+            try {
+                File outDir = new File(outPath);
+                if (!outDir.exists())
+                    outDir.mkdirs();
+                ProjectSequencesGenerator psg = new ProjectSequencesGenerator(inPath, testing);
+                psg.setBatchSize(batchSize);
+                psg.setNumOfThreads(numOfBatchThreads);
+                psg.setForceClasspathResolution(forceClasspathResolution);
+                psg.setSymbolTable(symbols);
+                if (libs != null)
+                    numOfSequences = psg.generateSequencesByLibrary(false, libs, outDir.getAbsolutePath());
+                else
+                    numOfSequences = psg.generateSequences(false, lib, outDir.getAbsolutePath());
+                resolutionRate = psg.getResolutionStats().getRate();
+            } catch (Throwable t) {
+                error = t;
+                t.printStackTrace();
+            }
+            wallTime = System.currentTimeMillis() - start;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getWallTime() {
+            return wallTime;
+        }
+
+        public int getNumOfSequences() {
+            return numOfSequences;
+        }
+
+        /**
+         * The share of visited nodes that had a binding, or -1 if the corpus has not run.
+         */
+        public double getResolutionRate() {
+            return resolutionRate;
+        }
+
+        public Throwable getError() {
+            return error;
+        }
+    }
+}
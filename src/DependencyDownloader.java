@@ -0,0 +1,227 @@
+package fqntypeparser;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Downloads files from remote repositories. A download goes to a temporary file next to the
+ * target and is renamed into place once complete and verified against the .sha1 file the
+ * repository publishes next to it, so an interrupted run never leaves a truncated jar behind.
+ * Failed attempts, refused connections included, are retried with exponential backoff, except
+ * when the file does not exist or the host name does not resolve: such a host is remembered
+ * for a while (see setUnknownHostTimeout) and not looked up again, so an offline run fails fast.
+ * Connections are plain HttpURLConnections whose streams are always drained and closed, so the
+ * JDK keeps them alive for the next request to the same host. Thread-safe.
+ */
+public class DependencyDownloader {
+    private static final DependencyDownloader DEFAULT = new DependencyDownloader();
+
+    private int retries = 3, connectTimeout = 10000, readTimeout = 30000;
+    private long backoff = 500, unknownHostTimeout = 5 * 60 * 1000;
+    private boolean requireChecksums = false;
+    // host -> System.nanoTime() until which it is taken as unknown
+    private final ConcurrentHashMap<String, Long> unknownHosts = new ConcurrentHashMap<>();
+
+    public static DependencyDownloader getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Sets how many times a failed download is tried again, and the delay in milliseconds
+     * before the first retry, doubled for every further one.
+     */
+    public void setRetries(int retries, long backoff) {
+        this.retries = Math.max(0, retries);
+        this.backoff = Math.max(0, backoff);
+    }
+
+    public void setTimeouts(int connectTimeout, int readTimeout) {
+        this.connectTimeout = connectTimeout;
+        this.readTimeout = readTimeout;
+    }
+
+    /**
+     * Sets for how many milliseconds a host name that did not resolve is not looked up again,
+     * five minutes by default.
+     */
+    public void setUnknownHostTimeout(long unknownHostTimeout) {
+        this.unknownHostTimeout = Math.max(0, unknownHostTimeout);
+    }
+
+    /**
+     * When enabled, a file without a .sha1 next to it is rejected instead of accepted unverified.
+     */
+    public void setRequireChecksums(boolean requireChecksums) {
+        this.requireChecksums = requireChecksums;
+    }
+
+    /**
+     * Downloads link into target. Throws FileNotFoundException if the repository does not
+     * have it, UnknownHostException if its host does not resolve, and IOException if every
+     * attempt failed.
+     */
+    public void download(String link, File target) throws IOException {
+        IOException last = null;
+        for (int attempt = 0; attempt <= retries; attempt++) {
+            sleepBeforeRetry(attempt);
+            try {
+                downloadOnce(link, target);
+                return;
+            } catch (FileNotFoundException | UnknownHostException e) {
+                throw e;
+            } catch (IOException e) {
+                last = e;
+            }
+        }
+        throw last;
+    }
+
+    /**
+     * Returns the content of link as text, e.g. a directory listing or a checksum, with the
+     * same retries as download.
+     */
+    public String fetchText(String link) throws IOException {
+        IOException last = null;
+        for (int attempt = 0; attempt <= retries; attempt++) {
+            sleepBeforeRetry(attempt);
+            try (InputStream in = open(link)) {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                copy(in, out, null);
+                return new String(out.toByteArray(), StandardCharsets.UTF_8);
+            } catch (FileNotFoundException | UnknownHostException e) {
+                throw e;
+            } catch (IOException e) {
+                last = e;
+            }
+        }
+        throw last;
+    }
+
+    private void downloadOnce(String link, File target) throws IOException {
+        File dir = target.getAbsoluteFile().getParentFile();
+        dir.mkdirs();
+        File tmp = File.createTempFile(target.getName(), ".part", dir);
+        try {
+            MessageDigest sha1 = newSha1();
+            try (InputStream in = open(link); OutputStream out = new FileOutputStream(tmp)) {
+                copy(in, out, sha1);
+            }
+            String expected = getChecksum(link);
+            if (expected == null && requireChecksums)
+                throw new FileNotFoundException("No checksum for " + link);
+            if (expected != null && !expected.equalsIgnoreCase(toHex(sha1.digest())))
+                throw new IOException("Checksum mismatch for " + link);
+            try {
+                Files.move(tmp.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            tmp.delete();
+        }
+    }
+
+    // The first token of link.sha1, or null if the repository has none.
+    private String getChecksum(String link) throws IOException {
+        String text;
+        try {
+            text = fetchText(link + ".sha1");
+        } catch (FileNotFoundException e) {
+            return null;
+        }
+        text = text.trim();
+        int end = 0;
+        while (end < text.length() && !Character.isWhitespace(text.charAt(end)))
+            end++;
+        return end == 0 ? null : text.substring(0, end);
+    }
+
+    // Opens the content of link. Missing files (and other client errors, which a retry does
+    // not fix) throw FileNotFoundException, server errors a plain IOException.
+    private InputStream open(String link) throws IOException {
+        URL url = new URL(link);
+        String host = url.getHost();
+        Long until = unknownHosts.get(host);
+        if (until != null) {
+            if (System.nanoTime() - until < 0)
+                throw new UnknownHostException(host);
+            unknownHosts.remove(host, until);
+        }
+        URLConnection connection = url.openConnection();
+        connection.setConnectTimeout(connectTimeout);
+        connection.setReadTimeout(readTimeout);
+        if (!(connection instanceof HttpURLConnection))
+            return connection.getInputStream();
+        HttpURLConnection http = (HttpURLConnection) connection;
+        int status;
+        try {
+            status = http.getResponseCode();
+        } catch (UnknownHostException e) {
+            unknownHosts.put(host, System.nanoTime() + unknownHostTimeout * 1000000);
+            throw e;
+        }
+        if (status == HttpURLConnection.HTTP_OK)
+            return http.getInputStream();
+        InputStream error = http.getErrorStream();
+        if (error != null) {
+            copy(error, null, null);
+            error.close();
+        }
+        if (status >= 400 && status < 500 && status != 408 && status != 429)
+            throw new FileNotFoundException("HTTP " + status + " for " + link);
+        throw new IOException("HTTP " + status + " for " + link);
+    }
+
+    private static void copy(InputStream in, OutputStream out, MessageDigest digest) throws IOException {
+        byte[] buffer = new byte[1 << 16];
+        int n;
+        while ((n = in.read(buffer)) != -1) {
+            if (out != null)
+                out.write(buffer, 0, n);
+            if (digest != null)
+                digest.update(buffer, 0, n);
+        }
+    }
+
+    private void sleepBeforeRetry(int attempt) throws IOException {
+        if (attempt == 0)
+            return;
+        try {
+            Thread.sleep(backoff << Math.min(attempt - 1, 16));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted", e);
+        }
+    }
+
+    private static MessageDigest newSha1() {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String toHex(byte[] digest) {
+        StringBuilder sb = new StringBuilder(digest.length * 2);
+        for (byte b : digest)
+            sb.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        return sb.toString();
+    }
+}
@@ -0,0 +1,399 @@
+package fqntypeparser;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.maven.model.Dependency;
+
+/**
+ * Puts the jar of a dependency (group, artifact, version) into the lib directory of a project,
+ * the one step that ClassPathUtil calls for every dependency it finds in a pom.xml or a
+ * build.gradle. Local repositories in the Maven layout (~/.m2/repository or a mirror of it)
+ * are looked up first and their jars linked or copied, without any HTTP. The remote
+ * repositories are only tried after that, and only once the resolver is set online: by
+ * default it is offline, since the machines it runs on usually have no network. Downloads run
+ * in the background on a bounded pool, see await.
+ */
+public class DependencyResolver {
+    public static final String CENTRAL = "https://repo1.maven.org/maven2/";
+
+    private static DependencyResolver defaultResolver;
+
+    private List<File> localRepositories = new ArrayList<>();
+    private List<String> remoteRepositories = Collections.singletonList(CENTRAL);
+    private boolean offline = true;
+    private DependencyDownloader downloader = DependencyDownloader.getDefault();
+    private File versionCacheFile = new File(System.getProperty("user.home"), ".fqntypeparser/versions.json");
+    private VersionCache versionCache;
+    private EffectivePomBuilder poms;
+    private int numOfDownloadThreads = 4;
+    private ExecutorService downloads;
+    // pending downloads by lib directory
+    private ConcurrentHashMap<String, Queue<Future<Boolean>>> pending = new ConcurrentHashMap<>();
+    // dependencies found missing without a download, by lib directory
+    private ConcurrentHashMap<String, AtomicInteger> unresolved = new ConcurrentHashMap<>();
+    // g:a:v -> jar, and g:a -> versions, of all the local repositories; built on first use
+    private volatile HashMap<String, File> jars;
+    private HashMap<String, List<String>> versions;
+
+    /**
+     * Returns the resolver shared by the generators that are not given one: ~/.m2/repository if
+     * it exists, and the remote repositories once set online.
+     */
+    public static synchronized DependencyResolver getDefault() {
+        if (defaultResolver == null) {
+            defaultResolver = new DependencyResolver();
+            File m2 = new File(System.getProperty("user.home"), ".m2/repository");
+            if (m2.isDirectory())
+                defaultResolver.addLocalRepository(m2);
+        }
+        return defaultResolver;
+    }
+
+    /**
+     * Adds a directory in the Maven repository layout, looked up before the ones added after it.
+     */
+    public synchronized void addLocalRepository(File dir) {
+        localRepositories.add(dir.getAbsoluteFile());
+        jars = null;
+        poms = null;
+    }
+
+    public List<File> getLocalRepositories() {
+        return Collections.unmodifiableList(localRepositories);
+    }
+
+    /**
+     * When enabled (the default), dependencies that are not in a local repository are left
+     * unresolved instead of being downloaded.
+     */
+    public void setOffline(boolean offline) {
+        this.offline = offline;
+    }
+
+    public boolean isOffline() {
+        return offline;
+    }
+
+    /**
+     * Sets the remote repositories tried after the ones a pom.xml declares, CENTRAL by default.
+     * URLs end with a slash.
+     */
+    public void setRemoteRepositories(String... urls) {
+        this.remoteRepositories = Arrays.asList(urls.clone());
+    }
+
+    public List<String> getRemoteRepositories() {
+        return remoteRepositories;
+    }
+
+    /**
+     * Returns a fingerprint of what the jars resolved besides a project's build files depend on:
+     * the local repositories in lookup order, whether the resolver is offline and, if not, the
+     * remote repositories.
+     */
+    public synchronized String getFingerprint() {
+        StringBuilder sb = new StringBuilder();
+        for (File repo : localRepositories)
+            sb.append(repo.getPath()).append('\n');
+        sb.append(offline ? "offline" : "online");
+        if (!offline)
+            for (String repo : remoteRepositories)
+                sb.append('\n').append(repo);
+        return FileUtil.getHash(sb.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    public void setDownloader(DependencyDownloader downloader) {
+        this.downloader = downloader;
+    }
+
+    /**
+     * Sets the file the versions of remote artifacts are cached in (see VersionCache), or null
+     * to keep them in memory. Takes effect before the first lookup only.
+     */
+    public void setVersionCacheFile(File versionCacheFile) {
+        this.versionCacheFile = versionCacheFile;
+    }
+
+    /**
+     * Sets how many downloads run at once. Takes effect before the first download only.
+     */
+    public void setNumOfDownloadThreads(int numOfDownloadThreads) {
+        this.numOfDownloadThreads = Math.max(1, numOfDownloadThreads);
+    }
+
+    /**
+     * Resolves the given direct dependencies of a project and the dependencies they pull in
+     * transitively, as far as their POMs are in the local repositories (see
+     * EffectivePomBuilder.getClosure). Returns the number of transitive dependencies.
+     */
+    public int resolveAll(Collection<Dependency> direct, Map<String, String> managedVersions, Collection<String> repoLinks, String outPath) {
+        for (Dependency d : direct)
+            // a pom dependency has no jar, only dependencies of its own
+            if (!"pom".equals(d.getType()))
+                resolve(d.getGroupId(), d.getArtifactId(), d.getVersion(), repoLinks, outPath);
+        List<String[]> closure = getEffectivePomBuilder().getClosure(direct, managedVersions);
+        for (String[] values : closure)
+            resolve(values[0], values[1], values[2], repoLinks, outPath);
+        return closure.size();
+    }
+
+    private synchronized EffectivePomBuilder getEffectivePomBuilder() {
+        if (poms == null)
+            poms = new EffectivePomBuilder(new ArrayList<>(localRepositories));
+        return poms;
+    }
+
+    /**
+     * Puts artifactId-version.jar into outPath, from a local repository or else from one of the
+     * remote repositories (the given ones, then the configured ones). If that version cannot be
+     * found, the latest version of the artifact is used instead. Downloads are only scheduled,
+     * call await before using outPath. Returns false if the jar is known to be missing.
+     */
+    public boolean resolve(final String groupId, final String artifactId, final String version, Collection<String> repoLinks, final String outPath) {
+        String name = artifactId + "-" + version + ".jar";
+        File target = new File(outPath, name);
+        if (target.exists())
+            return true;
+        File jar = findLocal(groupId, artifactId, version);
+        if (jar != null && install(jar, target))
+            return true;
+        if (offline) {
+            if (resolveFallback(groupId, artifactId, version, null, outPath))
+                return true;
+            unresolved.computeIfAbsent(getKey(outPath), k -> new AtomicInteger()).incrementAndGet();
+            return false;
+        }
+        final LinkedHashSet<String> links = new LinkedHashSet<>(repoLinks);
+        links.addAll(remoteRepositories);
+        Future<Boolean> download = getDownloads().submit(() -> {
+            VersionCache versions = getVersionCache();
+            for (String link : links) {
+                // skip repositories known not to have the artifact or that version of it
+                List<String> known = versions.getCachedVersions(link, groupId, artifactId);
+                if (known != null && !known.contains(version))
+                    continue;
+                try {
+                    ClassPathUtil.getFile(outPath, name, getLink(link, groupId, artifactId, version), downloader);
+                    return true;
+                } catch (IOException ex) {
+                }
+            }
+            return resolveFallback(groupId, artifactId, version, links, outPath);
+        });
+        pending.computeIfAbsent(getKey(outPath), k -> new ConcurrentLinkedQueue<>()).add(download);
+        return true;
+    }
+
+    // Some version of the artifact is better than none: one already in outPath, the latest
+    // local one, or the latest one in the maven-metadata.xml of a remote repository.
+    private boolean resolveFallback(String groupId, String artifactId, String version, Collection<String> links, String outPath) {
+        if (hasArtifact(new File(outPath), artifactId))
+            return true;
+        String latest = findLatestLocalVersion(groupId, artifactId);
+        if (latest != null && install(findLocal(groupId, artifactId, latest), new File(outPath, artifactId + "-" + latest + ".jar")))
+            return true;
+        if (links == null)
+            return false;
+        VersionCache versions = getVersionCache();
+        for (String link : links) {
+            try {
+                latest = versions.getLatestVersion(link, groupId, artifactId, downloader);
+                if (latest == null)
+                    continue;
+                ClassPathUtil.getFile(outPath, artifactId + "-" + latest + ".jar", getLink(link, groupId, artifactId, latest), downloader);
+                return true;
+            } catch (IOException ex) {
+            }
+        }
+        return false;
+    }
+
+    private static String getLink(String repo, String groupId, String artifactId, String version) {
+        return repo + groupId.replace('.', '/') + "/" + artifactId + "/" + version + "/" + artifactId + "-" + version + ".jar";
+    }
+
+    private synchronized VersionCache getVersionCache() {
+        if (versionCache == null)
+            versionCache = VersionCache.load(versionCacheFile);
+        return versionCache;
+    }
+
+    /**
+     * Waits for the downloads scheduled into outPath and returns how many of the dependencies
+     * resolved into it since the last call found no jar, downloaded or not. Saves the versions
+     * looked up meanwhile.
+     */
+    public int await(String outPath) throws InterruptedException {
+        Queue<Future<Boolean>> downloads = pending.remove(getKey(outPath));
+        AtomicInteger missing = unresolved.remove(getKey(outPath));
+        int failed = missing == null ? 0 : missing.get();
+        if (downloads == null)
+            return failed;
+        for (Future<Boolean> download : downloads) {
+            try {
+                if (!download.get())
+                    failed++;
+            } catch (ExecutionException e) {
+                failed++;
+            }
+        }
+        try {
+            getVersionCache().save();
+        } catch (IOException e) {
+            System.err.println("Cannot save the version cache " + versionCacheFile + ": " + e);
+        }
+        return failed;
+    }
+
+    private synchronized ExecutorService getDownloads() {
+        if (downloads == null) {
+            downloads = Executors.newFixedThreadPool(numOfDownloadThreads, r -> {
+                Thread thread = new Thread(r, "dependency-download");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return downloads;
+    }
+
+    private static String getKey(String outPath) {
+        return new File(outPath).getAbsolutePath();
+    }
+
+    /**
+     * Returns the jar of the given version in the first local repository that has it, or null.
+     */
+    public File findLocal(String groupId, String artifactId, String version) {
+        return getIndex().get(groupId + ":" + artifactId + ":" + version);
+    }
+
+    /**
+     * Returns the highest version of the artifact in the local repositories, or null.
+     */
+    public String findLatestLocalVersion(String groupId, String artifactId) {
+        getIndex();
+        List<String> vs = versions.get(groupId + ":" + artifactId);
+        if (vs == null || vs.isEmpty())
+            return null;
+        return Collections.max(vs, DependencyResolver::compareVersions);
+    }
+
+    private HashMap<String, File> getIndex() {
+        HashMap<String, File> index = jars;
+        if (index != null)
+            return index;
+        synchronized (this) {
+            if (jars == null) {
+                HashMap<String, File> newJars = new HashMap<>();
+                HashMap<String, List<String>> newVersions = new HashMap<>();
+                for (File repo : localRepositories)
+                    scan(repo, repo.getAbsolutePath().length() + 1, newJars, newVersions);
+                versions = newVersions;
+                jars = newJars;
+            }
+            return jars;
+        }
+    }
+
+    // Indexes group/path/artifact/version/artifact-version.jar, skipping classifier jars.
+    private static void scan(File file, int rootLength, HashMap<String, File> jars, HashMap<String, List<String>> versions) {
+        File[] subs = file.listFiles();
+        if (subs == null)
+            return;
+        for (File sub : subs) {
+            String name = sub.getName();
+            if (!name.endsWith(".jar")) {
+                if (sub.isDirectory())
+                    scan(sub, rootLength, jars, versions);
+                continue;
+            }
+            File versionDir = sub.getParentFile(), artifactDir = versionDir.getParentFile(), groupDir = artifactDir.getParentFile();
+            String version = versionDir.getName(), artifactId = artifactDir.getName();
+            if (groupDir == null || groupDir.getAbsolutePath().length() < rootLength || !name.equals(artifactId + "-" + version + ".jar"))
+                continue;
+            String groupId = groupDir.getAbsolutePath().substring(rootLength).replace(File.separatorChar, '.');
+            String key = groupId + ":" + artifactId;
+            if (jars.putIfAbsent(key + ":" + version, sub) == null)
+                versions.computeIfAbsent(key, k -> new ArrayList<>()).add(version);
+        }
+    }
+
+    // Hard links the jar into the lib directory where possible, or copies it.
+    private static boolean install(File jar, File target) {
+        target.getParentFile().mkdirs();
+        try {
+            Files.createLink(target.toPath(), jar.toPath());
+            return true;
+        } catch (IOException | UnsupportedOperationException | SecurityException e) {
+        }
+        File tmp = new File(target.getPath() + ".tmp");
+        try {
+            Files.copy(jar.toPath(), tmp.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            Files.move(tmp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            return true;
+        } catch (IOException e) {
+            tmp.delete();
+            return false;
+        }
+    }
+
+    // artifactId-version.jar, some version: the name must not go on with another artifact's
+    // name, as commons-lang3-3.9.jar or guava-testlib-19.0.jar do
+    private static boolean hasArtifact(File dir, String artifactId) {
+        String[] names = dir.list();
+        String prefix = artifactId + "-";
+        if (names != null)
+            for (String name : names)
+                if (name.startsWith(prefix) && name.endsWith(".jar") && name.length() > prefix.length() && Character.isDigit(name.charAt(prefix.length())))
+                    return true;
+        return false;
+    }
+
+    /**
+     * Compares versions segment by segment (split on . and -), numerically where both segments
+     * are numbers, e.g. 1.10 is after 1.9.
+     */
+    public static int compareVersions(String a, String b) {
+        String[] as = a.split("[.-]"), bs = b.split("[.-]");
+        for (int i = 0; i < Math.min(as.length, bs.length); i++) {
+            int c;
+            if (isNumber(as[i]) && isNumber(bs[i]))
+                c = new BigInteger(as[i]).compareTo(new BigInteger(bs[i]));
+            else
+                c = as[i].compareTo(bs[i]);
+            if (c != 0)
+                return c;
+        }
+        return Integer.compare(as.length, bs.length);
+    }
+
+    private static boolean isNumber(String s) {
+        if (s.isEmpty())
+            return false;
+        for (int i = 0; i < s.length(); i++)
+            if (!Character.isDigit(s.charAt(i)))
+                return false;
+        return true;
+    }
+}
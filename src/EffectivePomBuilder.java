@@ -0,0 +1,309 @@
+package fqntypeparser;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.maven.model.Dependency;
+import org.apache.maven.model.DependencyManagement;
+import org.apache.maven.model.Exclusion;
+import org.apache.maven.model.Model;
+import org.apache.maven.model.Parent;
+import org.apache.maven.model.io.xpp3.MavenXpp3Reader;
+import org.codehaus.plexus.util.xml.pull.XmlPullParserException;
+
+/**
+ * Builds the effective model of the POMs in local Maven repositories (inherited properties,
+ * dependency management and dependencies of the parent chain, imported BOMs, interpolated
+ * ${...} values) and the transitive compile closure of a project's dependencies from it. Every
+ * effective model is built once per coordinates and shared by all the projects. Thread-safe.
+ */
+public class EffectivePomBuilder {
+    private static final Pattern PROPERTY = Pattern.compile("\\$\\{([^}]+)\\}");
+    private static final int MAX_DEPTH = 32;
+
+    private final List<File> repositories;
+    private final ConcurrentHashMap<String, Optional<EffectivePom>> poms = new ConcurrentHashMap<>();
+
+    /**
+     * The effective model of a POM. Managed and declared dependencies are keyed by groupId:artifactId.
+     * The raw ones, inherited and declared as written, are kept for the children, which
+     * interpolate them with their own properties like Maven does.
+     */
+    static class EffectivePom {
+        String groupId, artifactId, version;
+        HashMap<String, String> properties = new HashMap<>();
+        LinkedHashMap<String, Dependency> managed = new LinkedHashMap<>(), dependencies = new LinkedHashMap<>();
+        LinkedHashMap<String, Dependency> rawManaged = new LinkedHashMap<>(), rawDependencies = new LinkedHashMap<>();
+    }
+
+    public EffectivePomBuilder(List<File> repositories) {
+        this.repositories = repositories;
+    }
+
+    /**
+     * Returns the coordinates (groupId, artifactId, version) of the dependencies that the given
+     * direct dependencies pull in transitively, nearest first. Like Maven, only compile and
+     * runtime dependencies that are not optional are followed, exclusions apply to everything
+     * below the dependency that declares them, the nearest version of an artifact wins and the
+     * managed versions of the project override the transitive ones. The direct dependencies
+     * are expanded whatever their scope, since the test sources are parsed too. Only jars are
+     * returned: pom dependencies contribute their own dependencies, and other types (test-jar,
+     * war, ...) are skipped.
+     */
+    public List<String[]> getClosure(Collection<Dependency> direct, Map<String, String> managedVersions) {
+        ArrayList<String[]> closure = new ArrayList<>();
+        HashSet<String> seen = new HashSet<>();
+        ArrayDeque<Node> queue = new ArrayDeque<>();
+        for (Dependency d : direct) {
+            if (seen.add(getKey(d)))
+                queue.add(new Node(d, getExclusions(d, new HashSet<String>()), 0));
+        }
+        while (!queue.isEmpty()) {
+            Node node = queue.poll();
+            if (node.depth > 0 && isJar(node.dependency))
+                closure.add(new String[]{node.dependency.getGroupId(), node.dependency.getArtifactId(), node.dependency.getVersion()});
+            if (node.depth >= MAX_DEPTH)
+                continue;
+            EffectivePom pom = get(node.dependency.getGroupId(), node.dependency.getArtifactId(), node.dependency.getVersion());
+            if (pom == null)
+                continue;
+            for (Dependency d : pom.dependencies.values()) {
+                String scope = d.getScope();
+                if (d.isOptional() || !(scope == null || scope.equals("compile") || scope.equals("runtime")))
+                    continue;
+                if (!isJar(d) && !"pom".equals(d.getType()))
+                    continue;
+                String key = getKey(d);
+                if (seen.contains(key) || isExcluded(d, node.exclusions))
+                    continue;
+                String version = managedVersions.get(key);
+                if (version == null)
+                    version = d.getVersion();
+                version = getVersion(version);
+                if (version == null)
+                    continue;
+                seen.add(key);
+                Dependency resolved = d.clone();
+                resolved.setVersion(version);
+                queue.add(new Node(resolved, getExclusions(d, node.exclusions), node.depth + 1));
+            }
+        }
+        return closure;
+    }
+
+    private static class Node {
+        private final Dependency dependency;
+        private final HashSet<String> exclusions;
+        private final int depth;
+
+        private Node(Dependency dependency, HashSet<String> exclusions, int depth) {
+            this.dependency = dependency;
+            this.exclusions = exclusions;
+            this.depth = depth;
+        }
+    }
+
+    private static HashSet<String> getExclusions(Dependency d, HashSet<String> inherited) {
+        if (d.getExclusions().isEmpty())
+            return inherited;
+        HashSet<String> exclusions = new HashSet<>(inherited);
+        for (Exclusion e : d.getExclusions())
+            exclusions.add(e.getGroupId() + ":" + e.getArtifactId());
+        return exclusions;
+    }
+
+    private static boolean isExcluded(Dependency d, HashSet<String> exclusions) {
+        if (exclusions.isEmpty())
+            return false;
+        return exclusions.contains(getKey(d)) || exclusions.contains(d.getGroupId() + ":*") || exclusions.contains("*:*")
+                || exclusions.contains("*:" + d.getArtifactId());
+    }
+
+    /**
+     * Returns whether the dependency is packaged as artifactId-version.jar.
+     */
+    static boolean isJar(Dependency d) {
+        String type = d.getType();
+        return type == null || type.equals("jar") || type.equals("bundle") || type.equals("maven-plugin") || type.equals("ejb");
+    }
+
+    private static String getKey(Dependency d) {
+        return d.getGroupId() + ":" + d.getArtifactId();
+    }
+
+    // The version to use for a declared version: the lower bound of a range, null if unknown.
+    private static String getVersion(String version) {
+        if (version == null || version.isEmpty() || version.contains("${"))
+            return null;
+        if (version.startsWith("[") || version.startsWith("(")) {
+            version = version.substring(1);
+            int index = version.indexOf(',');
+            if (index == -1)
+                index = version.length() - 1;
+            version = version.substring(0, index).trim();
+            return version.isEmpty() ? null : version;
+        }
+        return version;
+    }
+
+    /**
+     * Returns the effective model of the POM with the given coordinates, or null if it is in no
+     * local repository or cannot be read.
+     */
+    EffectivePom get(String groupId, String artifactId, String version) {
+        return get(groupId, artifactId, version, 0);
+    }
+
+    private EffectivePom get(String groupId, String artifactId, String version, int depth) {
+        String key = groupId + ":" + artifactId + ":" + version;
+        Optional<EffectivePom> pom = poms.get(key);
+        if (pom == null) {
+            // built outside of computeIfAbsent, which must not recurse into the map
+            pom = Optional.ofNullable(depth < MAX_DEPTH ? build(groupId, artifactId, version, depth) : null);
+            Optional<EffectivePom> other = poms.putIfAbsent(key, pom);
+            if (other != null)
+                pom = other;
+        }
+        return pom.orElse(null);
+    }
+
+    private EffectivePom build(String groupId, String artifactId, String version, int depth) {
+        Model model = read(groupId, artifactId, version);
+        if (model == null)
+            return null;
+        EffectivePom pom = new EffectivePom();
+        EffectivePom parent = null;
+        Parent p = model.getParent();
+        if (p != null)
+            parent = get(p.getGroupId(), p.getArtifactId(), p.getVersion(), depth + 1);
+        pom.groupId = model.getGroupId() != null ? model.getGroupId() : p != null ? p.getGroupId() : groupId;
+        pom.artifactId = model.getArtifactId();
+        pom.version = model.getVersion() != null ? model.getVersion() : p != null ? p.getVersion() : version;
+        if (parent != null) {
+            pom.properties.putAll(parent.properties);
+            pom.rawManaged.putAll(parent.rawManaged);
+            pom.rawDependencies.putAll(parent.rawDependencies);
+        }
+        Properties properties = model.getProperties();
+        if (properties != null)
+            for (String name : properties.stringPropertyNames())
+                pom.properties.put(name, properties.getProperty(name));
+        for (String prefix : new String[]{"project.", "pom.", ""}) {
+            pom.properties.put(prefix + "groupId", pom.groupId);
+            pom.properties.put(prefix + "artifactId", pom.artifactId);
+            pom.properties.put(prefix + "version", pom.version);
+        }
+        if (p != null) {
+            pom.properties.put("project.parent.version", p.getVersion());
+            pom.properties.put("parent.version", p.getVersion());
+            pom.properties.put("project.parent.groupId", p.getGroupId());
+        }
+        DependencyManagement dm = model.getDependencyManagement();
+        if (dm != null)
+            for (Dependency d : dm.getDependencies())
+                pom.rawManaged.put(getRawKey(d), d);
+        for (Dependency d : model.getDependencies())
+            pom.rawDependencies.put(getRawKey(d), d);
+        // inherited and own declarations alike are interpolated with this POM's properties
+        ArrayList<Dependency> imports = new ArrayList<>();
+        for (Dependency d : pom.rawManaged.values()) {
+            Dependency m = interpolate(d, pom.properties);
+            if ("import".equals(m.getScope()) && "pom".equals(m.getType()))
+                imports.add(m);
+            else
+                pom.managed.put(getKey(m), m);
+        }
+        // imported BOMs only add what is not managed already
+        for (Dependency m : imports) {
+            EffectivePom bom = get(m.getGroupId(), m.getArtifactId(), getVersion(m.getVersion()), depth + 1);
+            if (bom != null)
+                for (Map.Entry<String, Dependency> e : bom.managed.entrySet())
+                    if (!pom.managed.containsKey(e.getKey()))
+                        pom.managed.put(e.getKey(), e.getValue());
+        }
+        for (Dependency d : pom.rawDependencies.values()) {
+            Dependency i = interpolate(d, pom.properties);
+            pom.dependencies.put(getKey(i), i);
+        }
+        // managed versions and scopes fill in what the dependencies leave out
+        for (Map.Entry<String, Dependency> e : pom.dependencies.entrySet()) {
+            Dependency d = e.getValue(), m = pom.managed.get(e.getKey());
+            if (m == null || (d.getVersion() != null && d.getScope() != null))
+                continue;
+            d = d.clone();
+            if (d.getVersion() == null)
+                d.setVersion(m.getVersion());
+            if (d.getScope() == null)
+                d.setScope(m.getScope());
+            if (d.getExclusions().isEmpty())
+                d.setExclusions(m.getExclusions());
+            e.setValue(d);
+        }
+        return pom;
+    }
+
+    // A child's declaration replaces the inherited one of the same artifact.
+    private static String getRawKey(Dependency d) {
+        return d.getGroupId() + ":" + d.getArtifactId() + ":" + d.getType() + ":" + d.getClassifier();
+    }
+
+    private Model read(String groupId, String artifactId, String version) {
+        if (groupId == null || artifactId == null || version == null)
+            return null;
+        String path = groupId.replace('.', '/') + "/" + artifactId + "/" + version + "/" + artifactId + "-" + version + ".pom";
+        for (File repo : repositories) {
+            File file = new File(repo, path);
+            if (!file.isFile())
+                continue;
+            try (Reader reader = new FileReader(file)) {
+                return new MavenXpp3Reader().read(reader, false);
+            } catch (IOException | XmlPullParserException e) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    private static Dependency interpolate(Dependency d, Map<String, String> properties) {
+        Dependency i = d.clone();
+        i.setGroupId(interpolate(d.getGroupId(), properties));
+        i.setArtifactId(interpolate(d.getArtifactId(), properties));
+        i.setVersion(interpolate(d.getVersion(), properties));
+        i.setScope(interpolate(d.getScope(), properties));
+        return i;
+    }
+
+    static String interpolate(String value, Map<String, String> properties) {
+        for (int i = 0; value != null && i < 8 && value.contains("${"); i++) {
+            Matcher m = PROPERTY.matcher(value);
+            StringBuffer sb = new StringBuffer();
+            boolean changed = false;
+            while (m.find()) {
+                String v = properties.get(m.group(1));
+                if (v != null)
+                    changed = true;
+                m.appendReplacement(sb, Matcher.quoteReplacement(v != null ? v : m.group()));
+            }
+            m.appendTail(sb);
+            value = sb.toString();
+            if (!changed)
+                break;
+        }
+        return value;
+    }
+}
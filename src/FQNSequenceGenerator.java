@@ -2,7 +2,6 @@ package fqntypeparser;
 
 import java.util.ArrayList;
 import java.util.Iterator;
-import java.util.HashMap;
 import org.eclipse.jdt.core.JavaCore;
 import org.eclipse.jdt.core.dom.*;
 
@@ -11,8 +10,11 @@ public class FQNSequenceGenerator extends ASTVisitor {
     
     private String className, superClassName;
     private int offset;
-    private int numOfExpressions = 0, numOfResolvedExpressions = 0;
-    private ArrayList<HashMap<String, String>> nodeInfo = new ArrayList<HashMap<String, String>>();
+    private ResolutionStats.Counts resolution = new ResolutionStats.Counts();
+    private SymbolTable symbols;
+    private BindingCache cache;
+    private SourceFile source;
+    private ArrayList<NodeRecord> nodeInfo = new ArrayList<NodeRecord>();
     
     public FQNSequenceGenerator(String className, String superClassName, int offset) {
         super(false);
@@ -21,10 +23,49 @@ public class FQNSequenceGenerator extends ASTVisitor {
         this.offset = offset;
     }
 
-    public ArrayList<HashMap<String, String>> getNodeInfo() {
+    /**
+     * Renders resolved names through the given batch cache and interns them in its symbol table,
+     * and takes node texts from the source the visited AST was parsed from.
+     */
+    public FQNSequenceGenerator(String className, String superClassName, int offset, BindingCache cache, SourceFile source) {
+        this(className, superClassName, offset);
+        this.cache = cache;
+        this.symbols = cache.getSymbolTable();
+        this.source = source;
+    }
+
+    public ArrayList<NodeRecord> getNodeInfo() {
         return nodeInfo;
     }
 
+    /**
+     * How many of the expressions, types and constructor invocations visited had a binding.
+     */
+    public ResolutionStats.Counts getResolution() {
+        return resolution;
+    }
+
+    public int getNumOfExpressions() {
+        return resolution.getTotal();
+    }
+
+    public int getNumOfResolvedExpressions() {
+        return resolution.getResolved();
+    }
+
+    private String intern(String name) {
+        if (symbols == null)
+            return name;
+        return symbols.intern(name);
+    }
+
+    private CharSequence getText(ASTNode node) {
+        int start = node.getStartPosition();
+        if (source == null || start < 0)
+            return node.toString();
+        return source.subSequence(start, start + node.getLength());
+    }
+
     private Type getType(VariableDeclarationFragment node) {
         ASTNode p = node.getParent();
         if (p instanceof VariableDeclarationExpression)
@@ -35,6 +76,8 @@ public class FQNSequenceGenerator extends ASTVisitor {
     }
 
     private String getSignature(IMethodBinding method) {
+        if (cache != null)
+            return cache.getSignature(method);
         StringBuilder sb = new StringBuilder();
         sb.append(method.getDeclaringClass().getTypeDeclaration().getQualifiedName());
         sb.append("." + method.getName());
@@ -47,136 +90,43 @@ public class FQNSequenceGenerator extends ASTVisitor {
     }
 
     static String getUnresolvedType(Type type) {
-        if (type.isArrayType()) {
-            ArrayType t = (ArrayType) type;
-            return getUnresolvedType(t.getElementType()) + getDimensions(t.getDimensions());
-        } else if (type.isIntersectionType()) {
-            IntersectionType it = (IntersectionType) type;
-            @SuppressWarnings("unchecked")
-            ArrayList<Type> types = new ArrayList<>(it.types());
-            String s = getUnresolvedType(types.get(0));
-            for (int i = 1; i < types.size(); i++)
-                s += " & " + getUnresolvedType(types.get(i));
-            return s;
-        } else if (type.isParameterizedType()) {
-            ParameterizedType t = (ParameterizedType) type;
-            return getUnresolvedType(t.getType());
-        } else if (type.isUnionType()) {
-            UnionType it = (UnionType) type;
-            @SuppressWarnings("unchecked")
-            ArrayList<Type> types = new ArrayList<>(it.types());
-            String s = getUnresolvedType(types.get(0));
-            for (int i = 1; i < types.size(); i++)
-                s += " | " + getUnresolvedType(types.get(i));
-            return s;
-        } else if (type.isNameQualifiedType()) {
-            NameQualifiedType qt = (NameQualifiedType) type;
-            return qt.getQualifier().getFullyQualifiedName() + "." + qt.getName().getIdentifier();
-        } else if (type.isPrimitiveType()) {
-            return type.toString();
-        } else if (type.isQualifiedType()) {
-            QualifiedType qt = (QualifiedType) type;
-            return getUnresolvedType(qt.getQualifier()) + "." + qt.getName().getIdentifier();
-        } else if (type.isSimpleType()) {
-            return type.toString();
-        } else if (type.isWildcardType()) {
-            WildcardType wt = (WildcardType) type;
-            String s = "?";
-            if (wt.getBound() != null) {
-                if (wt.isUpperBound())
-                    s += "extends ";
-                else
-                    s += "super ";
-                s += getUnresolvedType(wt.getBound());
-            }
-            return s;
-        }
-        
-        return null;
+        return TypeNameRenderer.getUnresolvedType(type);
     }
 
-    private static String getDimensions(int dimensions) {
-        String s = "";
-        for (int i = 0; i < dimensions; i++)
-            s += "[]";
-        return s;
+    static String getDimensions(int dimensions) {
+        return TypeNameRenderer.getDimensions(dimensions);
     }
 
     static String getResolvedType(Type type) {
-        ITypeBinding tb = type.resolveBinding();
-        if (tb == null || tb.isRecovered())
-            return getUnresolvedType(type);
-        tb = tb.getTypeDeclaration();
-        if (tb.isLocal() || tb.getQualifiedName().isEmpty())
-            return getUnresolvedType(type);
-        if (type.isArrayType()) {
-            ArrayType t = (ArrayType) type;
-            return getResolvedType(t.getElementType()) + getDimensions(t.getDimensions());
-        } else if (type.isIntersectionType()) {
-            IntersectionType it = (IntersectionType) type;
-            @SuppressWarnings("unchecked")
-            ArrayList<Type> types = new ArrayList<>(it.types());
-            String s = getResolvedType(types.get(0));
-            for (int i = 1; i < types.size(); i++)
-                s += " & " + getResolvedType(types.get(i));
-            return s;
-        } else if (type.isParameterizedType()) {
-            ParameterizedType t = (ParameterizedType) type;
-            return getResolvedType(t.getType());
-        } else if (type.isUnionType()) {
-            UnionType it = (UnionType) type;
-            @SuppressWarnings("unchecked")
-            ArrayList<Type> types = new ArrayList<>(it.types());
-            String s = getResolvedType(types.get(0));
-            for (int i = 1; i < types.size(); i++)
-                s += " | " + getResolvedType(types.get(i));
-            return s;
-        } else if (type.isNameQualifiedType()) {
-            return tb.getQualifiedName();
-        } else if (type.isPrimitiveType()) {
-            return type.toString();
-        } else if (type.isQualifiedType()) {
-            return tb.getQualifiedName();
-        } else if (type.isSimpleType()) {
-            return tb.getQualifiedName();
-        } else if (type.isWildcardType()) {
-            WildcardType wt = (WildcardType) type;
-            String s = "?";
-            if (wt.getBound() != null) {
-                if (wt.isUpperBound())
-                    s += "extends ";
-                else
-                    s += "super ";
-                s += getResolvedType(wt.getBound());
-            }
-            return s;
-        }
-        
-        return null;
+        return TypeNameRenderer.getResolvedType(type);
+    }
+
+    /**
+     * Same as getResolvedType, with the binding lookups going through the batch cache.
+     */
+    private String getResolvedTypeName(Type type) {
+        if (cache == null)
+            return getResolvedType(type);
+        return TypeNameRenderer.getResolvedType(type, cache);
     }
 
     @Override
     public void preVisit(ASTNode node) {
         if (node instanceof Expression) {
-            numOfExpressions++;
-            Expression e = (Expression) node;
-            if (e.resolveTypeBinding() != null && !e.resolveTypeBinding().isRecovered())
-                numOfResolvedExpressions++;
+            ITypeBinding tb = ((Expression) node).resolveTypeBinding();
+            resolution.add(node.getNodeType(), tb != null && !tb.isRecovered());
         } else if (node instanceof Statement) {
-            if (node instanceof ConstructorInvocation) {
-                numOfExpressions++;
-                if (((ConstructorInvocation) node).resolveConstructorBinding() != null && !((ConstructorInvocation) node).resolveConstructorBinding().isRecovered())
-                    numOfResolvedExpressions++;
-            } else if (node instanceof SuperConstructorInvocation) {
-                numOfExpressions++;
-                if (((SuperConstructorInvocation) node).resolveConstructorBinding() != null && !((SuperConstructorInvocation) node).resolveConstructorBinding().isRecovered())
-                    numOfResolvedExpressions++;
-            }
+            IMethodBinding b = null;
+            if (node instanceof ConstructorInvocation)
+                b = ((ConstructorInvocation) node).resolveConstructorBinding();
+            else if (node instanceof SuperConstructorInvocation)
+                b = ((SuperConstructorInvocation) node).resolveConstructorBinding();
+            else
+                return;
+            resolution.add(node.getNodeType(), b != null && !b.isRecovered());
         } else if (node instanceof Type) {
-            numOfExpressions++;
-            Type t = (Type) node;
-            if (t.resolveBinding() != null && !t.resolveBinding().isRecovered())
-                numOfResolvedExpressions++;
+            ITypeBinding tb = ((Type) node).resolveBinding();
+            resolution.add(node.getNodeType(), tb != null && !tb.isRecovered());
         }
     }
 
@@ -187,20 +137,19 @@ public class FQNSequenceGenerator extends ASTVisitor {
 
     @Override
     public boolean visit(ArrayCreation node) {
-        HashMap<String, String> data = new HashMap<String, String>();
+        NodeRecord data = new NodeRecord();
         int startPosition = node.getStartPosition();
         if (startPosition != -1) {
             int endPosition = startPosition + node.getLength();
-            data.put("debugText", node.toString());
-            data.put("start", "" + (startPosition - offset - 1));
-            data.put("end", "" + (endPosition - offset - 1));
+            data.setDebugText(getText(node));
+            data.setOffsets(startPosition - offset - 1, endPosition - offset - 1);
         }
-        String utype = getUnresolvedType(node.getType()), rtype = getResolvedType(node.getType());
+        String utype = getUnresolvedType(node.getType()), rtype = getResolvedTypeName(node.getType());
 
         if (startPosition != -1) {
-            data.put("unresolvedType", utype.substring(0, utype.length() - 2));
-            data.put("resolvedType", rtype.substring(0, rtype.length() - 2));
-            data.put("nodeType", "ARRAY_CREATION");
+            data.setUnresolvedType(intern(utype.substring(0, utype.length() - 2)));
+            data.setResolvedType(intern(rtype.substring(0, rtype.length() - 2)));
+            data.setNodeType(NodeType.ARRAY_CREATION);
             nodeInfo.add(data);
         }
         if (node.getInitializer() != null)
@@ -246,19 +195,18 @@ public class FQNSequenceGenerator extends ASTVisitor {
 
     @Override
     public boolean visit(CastExpression node) {
-        String utype = getUnresolvedType(node.getType()), rtype = getResolvedType(node.getType());
+        String utype = getUnresolvedType(node.getType()), rtype = getResolvedTypeName(node.getType());
         node.getExpression().accept(this);
 
         int startPosition = node.getStartPosition();
         if (startPosition != -1) {
             int endPosition = startPosition + node.getLength();
-            HashMap<String, String> data = new HashMap<String, String>();
-            data.put("debugText", node.toString());
-            data.put("unresolvedType", utype);
-            data.put("resolvedType", rtype);
-            data.put("nodeType", "CAST_EXPRESSION");
-            data.put("start", "" + (startPosition - offset - 1));
-            data.put("end", "" + (endPosition - offset - 1));
+            NodeRecord data = new NodeRecord();
+            data.setDebugText(getText(node));
+            data.setUnresolvedType(intern(utype));
+            data.setResolvedType(intern(rtype));
+            data.setNodeType(NodeType.CAST_EXPRESSION);
+            data.setOffsets(startPosition - offset - 1, endPosition - offset - 1);
             nodeInfo.add(data);
         }
         return false;
@@ -296,13 +244,12 @@ public class FQNSequenceGenerator extends ASTVisitor {
         int startPosition = node.getStartPosition();
         if (startPosition != -1) {
             int endPosition = startPosition + node.getLength();
-            HashMap<String, String> data = new HashMap<String, String>();
-            data.put("debugText", node.toString());
-            data.put("unresolvedType", utype);
-            data.put("resolvedType", rtype);
-            data.put("nodeType", "CLASS_INSTANCE_CREATION");
-            data.put("start", "" + (startPosition - offset - 1));
-            data.put("end", "" + (endPosition - offset - 1));
+            NodeRecord data = new NodeRecord();
+            data.setDebugText(getText(node));
+            data.setUnresolvedType(intern(utype));
+            data.setResolvedType(intern(rtype));
+            data.setNodeType(NodeType.CLASS_INSTANCE_CREATION);
+            data.setOffsets(startPosition - offset - 1, endPosition - offset - 1);
             nodeInfo.add(data);
         }
 
@@ -333,7 +280,7 @@ public class FQNSequenceGenerator extends ASTVisitor {
             ((ASTNode) node.arguments().get(i)).accept(this);
 		String nodeArguments = "(";
         for (int i = 0; i < node.arguments().size(); i++) {
-			nodeArguments += node.arguments().get(i);
+			nodeArguments += getText((ASTNode) node.arguments().get(i));
 			if (i < node.arguments().size() - 1)
 				nodeArguments += ", ";
 		}
@@ -348,15 +295,14 @@ public class FQNSequenceGenerator extends ASTVisitor {
         int startPosition = node.getStartPosition();
         if (startPosition != -1) {
             int endPosition = startPosition + node.getLength();
-            HashMap<String, String> data = new HashMap<String, String>();
-            data.put("debugText", node.toString());
-            data.put("unresolvedType", utype);
-            data.put("resolvedType", rtype);
-			data.put("partial", "<blank>" + nodeArguments + ";");
-			data.put("full", rtype + nodeArguments + ";");
-            data.put("nodeType", "CONSTRUCTOR_INVOCATION");
-            data.put("start", "" + (startPosition - offset - 1));
-            data.put("end", "" + (endPosition - offset - 1));
+            NodeRecord data = new NodeRecord();
+            data.setDebugText(getText(node));
+            data.setUnresolvedType(intern(utype));
+            data.setResolvedType(intern(rtype));
+			data.setPartial("<blank>" + nodeArguments + ";");
+			data.setFull(rtype + nodeArguments + ";");
+            data.setNodeType(NodeType.CONSTRUCTOR_INVOCATION);
+            data.setOffsets(startPosition - offset - 1, endPosition - offset - 1);
             nodeInfo.add(data);
         }
 		return false;
@@ -437,15 +383,14 @@ public class FQNSequenceGenerator extends ASTVisitor {
         int startPosition = node.getStartPosition();
         if (startPosition != -1) {
             int endPosition = startPosition + node.getLength();
-            HashMap<String, String> data = new HashMap<String, String>();
-            data.put("debugText", node.toString());
-            data.put("unresolvedType", utype);
-            data.put("resolvedType", rtype);
-            data.put("partial", "<blank>" + utype);
-            data.put("full", rtype);
-            data.put("nodeType", "FIELD_ACCESS");
-            data.put("start", "" + (startPosition - offset - 1));
-            data.put("end", "" + (endPosition - offset - 1));
+            NodeRecord data = new NodeRecord();
+            data.setDebugText(getText(node));
+            data.setUnresolvedType(intern(utype));
+            data.setResolvedType(intern(rtype));
+            data.setPartial("<blank>" + utype);
+            data.setFull(rtype);
+            data.setNodeType(NodeType.FIELD_ACCESS);
+            data.setOffsets(startPosition - offset - 1, endPosition - offset - 1);
             nodeInfo.add(data);
         }
 
@@ -485,17 +430,16 @@ public class FQNSequenceGenerator extends ASTVisitor {
     @Override
     public boolean visit(InstanceofExpression node) {
         node.getLeftOperand().accept(this);
-        String rtype = getResolvedType(node.getRightOperand()), utype = getUnresolvedType(node.getRightOperand());
+        String rtype = getResolvedTypeName(node.getRightOperand()), utype = getUnresolvedType(node.getRightOperand());
         int startPosition = node.getStartPosition();
         if (startPosition != -1) {
             int endPosition = startPosition + node.getLength();
-            HashMap<String, String> data = new HashMap<String, String>();
-            data.put("debugText", node.toString());
-            data.put("unresolvedType", utype);
-            data.put("resolvedType", rtype);
-            data.put("nodeType", "INSTANCEOF_EXPRESSION");
-            data.put("start", "" + (startPosition - offset - 1));
-            data.put("end", "" + (endPosition - offset - 1));
+            NodeRecord data = new NodeRecord();
+            data.setDebugText(getText(node));
+            data.setUnresolvedType(intern(utype));
+            data.setResolvedType(intern(rtype));
+            data.setNodeType(NodeType.INSTANCEOF_EXPRESSION);
+            data.setOffsets(startPosition - offset - 1, endPosition - offset - 1);
             nodeInfo.add(data);
         }
 
@@ -522,24 +466,23 @@ public class FQNSequenceGenerator extends ASTVisitor {
     @Override
     public boolean visit(MethodInvocation node) {
         int startPosition = node.getStartPosition();
-        HashMap<String, String> data = new HashMap<String, String>();
+        NodeRecord data = new NodeRecord();
 		String utype = null, rtype = null;
         if (startPosition != -1) {
             int endPosition = startPosition + node.getLength();
-            data.put("debugText", node.toString());
-            data.put("start", "" + (startPosition - offset - 1));
-            data.put("end", "" + (endPosition - offset - 1));
+            data.setDebugText(getText(node));
+            data.setOffsets(startPosition - offset - 1, endPosition - offset - 1);
         }
 
         if (node.getExpression() != null && node.getExpression() instanceof TypeLiteral) {
             TypeLiteral lit = (TypeLiteral) node.getExpression();
             utype = getUnresolvedType(lit.getType());
-			rtype = getResolvedType(lit.getType());
+			rtype = getResolvedTypeName(lit.getType());
             if (startPosition != -1) {
 				utype = utype + "." + node.getName().getIdentifier();
 				rtype = rtype + "." + node.getName().getIdentifier();
-                data.put("unresolvedType", utype);
-                data.put("resolvedType", rtype);
+                data.setUnresolvedType(intern(utype));
+                data.setResolvedType(intern(rtype));
             }
         } else {
             IMethodBinding b = node.resolveMethodBinding();
@@ -550,7 +493,7 @@ public class FQNSequenceGenerator extends ASTVisitor {
                     tb = tb.getTypeDeclaration();
                     if (tb.isLocal() || tb.getQualifiedName().isEmpty()) {
                         if (startPosition != -1) {
-                            data.put("nodeType", "METHOD_INVOCATION");
+                            data.setNodeType(NodeType.METHOD_INVOCATION);
                             nodeInfo.add(data);
                         }
                         return false;
@@ -564,43 +507,43 @@ public class FQNSequenceGenerator extends ASTVisitor {
                     if (startPosition != -1) {
 						utype = getName(tb);
 						rtype = getQualifiedName(tb);
-                        data.put("unresolvedType", utype);
-                        data.put("resolvedType", rtype);
+                        data.setUnresolvedType(intern(utype));
+                        data.setResolvedType(intern(rtype));
                     }
                 } else {
                     if (startPosition != -1) {
 						utype = "this";
 						rtype = "this";
-                        data.put("unresolvedType", utype);
-                        data.put("resolvedType", rtype);
+                        data.setUnresolvedType(intern(utype));
+                        data.setResolvedType(intern(rtype));
                     }
                 }
             }
             String name = "."+ node.getName().getIdentifier();
             if (startPosition != -1) {
 				utype = name;
-                data.put("unresolvedType", utype);
+                data.setUnresolvedType(intern(utype));
             }
             if (tb != null)
                 name = getSignature(b.getMethodDeclaration());
             if (startPosition != -1) {
 				rtype = name;
-                data.put("resolvedType", rtype);
+                data.setResolvedType(intern(rtype));
             }
         }
         for (int i = 0; i < node.arguments().size(); i++)
             ((ASTNode) node.arguments().get(i)).accept(this);
 		String nodeArguments = "(";
         for (int i = 0; i < node.arguments().size(); i++) {
-			nodeArguments += node.arguments().get(i);
+			nodeArguments += getText((ASTNode) node.arguments().get(i));
 			if (i < node.arguments().size() - 1)
 				nodeArguments += ", ";
 		}
 		nodeArguments += ")";
         if (startPosition != -1) {
-			data.put("partial", "<blank>" + utype + nodeArguments);
-			data.put("full", rtype + nodeArguments);
-            data.put("nodeType", "METHOD_INVOCATION");
+			data.setPartial("<blank>" + utype + nodeArguments);
+			data.setFull(rtype + nodeArguments);
+            data.setNodeType(NodeType.METHOD_INVOCATION);
             nodeInfo.add(data);
         }
         return false;
@@ -649,12 +592,11 @@ public class FQNSequenceGenerator extends ASTVisitor {
     @Override
     public boolean visit(QualifiedName node) {
         int startPosition = node.getStartPosition();
-        HashMap<String, String> data = new HashMap<String, String>();
+        NodeRecord data = new NodeRecord();
         if (startPosition != -1) {
             int endPosition = startPosition + node.getLength();
-            data.put("debugText", node.toString());
-            data.put("start", "" + (startPosition - offset - 1));
-            data.put("end", "" + (endPosition - offset - 1));
+            data.setDebugText(getText(node));
+            data.setOffsets(startPosition - offset - 1, endPosition - offset - 1);
             nodeInfo.add(data);
         }
 
@@ -669,7 +611,7 @@ public class FQNSequenceGenerator extends ASTVisitor {
                     tb = tb.getTypeDeclaration();
                     if (tb.isLocal() || tb.getQualifiedName().isEmpty())
                         if (startPosition != -1) {
-                            data.put("nodeType", "QUALIFIED_NAME");
+                            data.setNodeType(NodeType.QUALIFIED_NAME);
                             nodeInfo.add(data);
                         }
                         return false;
@@ -679,18 +621,18 @@ public class FQNSequenceGenerator extends ASTVisitor {
                 if (tb.isLocal() || tb.getQualifiedName().isEmpty())
                     return false;
                 if (startPosition != -1) {
-                    data.put("unresolvedType", node.getFullyQualifiedName());
-                    data.put("resolvedType", getQualifiedName(tb));
-                    data.put("nodeType", "QUALIFIED_NAME");
+                    data.setUnresolvedType(intern(node.getFullyQualifiedName()));
+                    data.setResolvedType(intern(getQualifiedName(tb)));
+                    data.setNodeType(NodeType.QUALIFIED_NAME);
                     nodeInfo.add(data);
                 }
                 return false;
             }
         } else {
             if (startPosition != -1) {
-                data.put("unresolvedType", node.getFullyQualifiedName());
-                data.put("resolvedType", node.getFullyQualifiedName());
-                data.put("nodeType", "QUALIFIED_NAME");
+                data.setUnresolvedType(intern(node.getFullyQualifiedName()));
+                data.setResolvedType(intern(node.getFullyQualifiedName()));
+                data.setNodeType(NodeType.QUALIFIED_NAME);
                 nodeInfo.add(data);
             }
             return false;
@@ -698,7 +640,7 @@ public class FQNSequenceGenerator extends ASTVisitor {
         node.getQualifier().accept(this);
         String name = "." + node.getName().getIdentifier();
         if (startPosition != -1)
-            data.put("unresolvedType", name);
+            data.setUnresolvedType(intern(name));
         if (b != null) {
             if (b instanceof IVariableBinding) {
                 if (tb != null)
@@ -708,8 +650,8 @@ public class FQNSequenceGenerator extends ASTVisitor {
             }
         }
         if (startPosition != -1) {
-            data.put("resolvedType", name);
-            data.put("nodeType", "QUALIFIED_NAME");
+            data.setResolvedType(intern(name));
+            data.setNodeType(NodeType.QUALIFIED_NAME);
             nodeInfo.add(data);
         }
         return false;
@@ -723,12 +665,11 @@ public class FQNSequenceGenerator extends ASTVisitor {
     @Override
     public boolean visit(SimpleName node) {
         int startPosition = node.getStartPosition();
-        HashMap<String, String> data = new HashMap<String, String>();
+        NodeRecord data = new NodeRecord();
         if (startPosition == -1) {
             int endPosition = startPosition + node.getLength();
-            data.put("debugText", node.toString());
-            data.put("start", "" + (startPosition - offset - 1));
-            data.put("end", "" + (endPosition - offset - 1));
+            data.setDebugText(getText(node));
+            data.setOffsets(startPosition - offset - 1, endPosition - offset - 1);
         }
 
         IBinding b = node.resolveBinding();
@@ -744,9 +685,9 @@ public class FQNSequenceGenerator extends ASTVisitor {
                         return false;
                     }
                     if (startPosition == -1) {
-                        data.put("unresolvedType", getQualifiedName(tb));
-                        data.put("resolvedType", getName(tb));
-                        data.put("nodeType", "SIMPLE_NAME");
+                        data.setUnresolvedType(intern(getQualifiedName(tb)));
+                        data.setResolvedType(intern(getName(tb)));
+                        data.setNodeType(NodeType.SIMPLE_NAME);
                     }
                 }
             } else if (b instanceof ITypeBinding) {
@@ -758,16 +699,16 @@ public class FQNSequenceGenerator extends ASTVisitor {
                     return false;
                 }
                 if (startPosition == -1) {
-                    data.put("unresolvedType", getQualifiedName(tb));
-                    data.put("resolvedType", getName(tb));
-                    data.put("nodeType", "SIMPLE_NAME");
+                    data.setUnresolvedType(intern(getQualifiedName(tb)));
+                    data.setResolvedType(intern(getName(tb)));
+                    data.setNodeType(NodeType.SIMPLE_NAME);
                 }
             }
         } else {
             if (startPosition == -1) {
-                data.put("unresolvedType", node.getIdentifier());
-                data.put("resolvedType", node.getIdentifier());
-                data.put("nodeType", "SIMPLE_NAME");
+                data.setUnresolvedType(intern(node.getIdentifier()));
+                data.setResolvedType(intern(node.getIdentifier()));
+                data.setNodeType(NodeType.SIMPLE_NAME);
             }
         }
         if (startPosition == -1)
@@ -782,13 +723,12 @@ public class FQNSequenceGenerator extends ASTVisitor {
 
     @Override
     public boolean visit(SingleVariableDeclaration node) {
-        HashMap<String, String> data = new HashMap<String, String>();
+        NodeRecord data = new NodeRecord();
         int startPosition = node.getStartPosition();
         if (startPosition != -1) {
             int endPosition = startPosition + node.getLength();
-            data.put("debugText", node.toString());
-            data.put("start", "" + (startPosition - offset - 1));
-            data.put("end", "" + (endPosition - offset - 1));
+            data.setDebugText(getText(node));
+            data.setOffsets(startPosition - offset - 1, endPosition - offset - 1);
         }
 
         ITypeBinding tb = node.getType().resolveBinding();
@@ -797,11 +737,11 @@ public class FQNSequenceGenerator extends ASTVisitor {
                 nodeInfo.add(data);
             return false;
         }
-        String utype = getUnresolvedType(node.getType()), rtype = getResolvedType(node.getType());
+        String utype = getUnresolvedType(node.getType()), rtype = getResolvedTypeName(node.getType());
         if (startPosition != -1) {
-            data.put("unresolvedType", utype);
-            data.put("resolvedType", rtype);
-            data.put("nodeType", "SINGLE_VARIABLE_DECLARATION");
+            data.setUnresolvedType(intern(utype));
+            data.setResolvedType(intern(rtype));
+            data.setNodeType(NodeType.SINGLE_VARIABLE_DECLARATION);
         }
         if (node.getInitializer() != null) {
             node.getInitializer().accept(this);
@@ -818,14 +758,13 @@ public class FQNSequenceGenerator extends ASTVisitor {
 
     @Override
     public boolean visit(SuperConstructorInvocation node) {
-        HashMap<String, String> data = new HashMap<String, String>();
+        NodeRecord data = new NodeRecord();
         int startPosition = node.getStartPosition();
 		String utype = null, rtype = null;
         if (startPosition != -1) {
             int endPosition = startPosition + node.getLength();
-            data.put("debugText", node.toString());
-            data.put("start", "" + (startPosition - offset - 1));
-            data.put("end", "" + (endPosition - offset - 1));
+            data.setDebugText(getText(node));
+            data.setOffsets(startPosition - offset - 1, endPosition - offset - 1);
         }
 
         IMethodBinding b = node.resolveConstructorBinding();
@@ -842,23 +781,23 @@ public class FQNSequenceGenerator extends ASTVisitor {
         String name = "." + superClassName;
         if (startPosition != -1) {
 			utype = name;
-            data.put("unresolvedType", utype);
+            data.setUnresolvedType(intern(utype));
 		}
         if (tb != null)
             name = getSignature(b.getMethodDeclaration());
 		rtype = name;
 		String nodeArguments = "(";
         for (int i = 0; i < node.arguments().size(); i++) {
-			nodeArguments += node.arguments().get(i);
+			nodeArguments += getText((ASTNode) node.arguments().get(i));
 			if (i < node.arguments().size() - 1)
 				nodeArguments += ", ";
 		}
 		nodeArguments += ")";
         if (startPosition != -1) {
-            data.put("resolvedType", rtype);
-			data.put("partial", "<blank>" + nodeArguments + ";");
-			data.put("full", rtype + nodeArguments + ";");
-            data.put("nodeType", "SUPER_CONSTRUCTOR_INVOCATION");
+            data.setResolvedType(intern(rtype));
+			data.setPartial("<blank>" + nodeArguments + ";");
+			data.setFull(rtype + nodeArguments + ";");
+            data.setNodeType(NodeType.SUPER_CONSTRUCTOR_INVOCATION);
             nodeInfo.add(data);
         }
         for (int i = 0; i < node.arguments().size(); i++)
@@ -868,13 +807,12 @@ public class FQNSequenceGenerator extends ASTVisitor {
 
     @Override
     public boolean visit(SuperFieldAccess node) {
-        HashMap<String, String> data = new HashMap<String, String>();
+        NodeRecord data = new NodeRecord();
         int startPosition = node.getStartPosition();
         if (startPosition != -1) {
             int endPosition = startPosition + node.getLength();
-            data.put("debugText", node.toString());
-            data.put("start", "" + (startPosition - offset - 1));
-            data.put("end", "" + (endPosition - offset - 1));
+            data.setDebugText(getText(node));
+            data.setOffsets(startPosition - offset - 1, endPosition - offset - 1);
         }
 
         IVariableBinding b = node.resolveFieldBinding();
@@ -888,30 +826,30 @@ public class FQNSequenceGenerator extends ASTVisitor {
             }
 			String utype = getName(tb), rtype = getQualifiedName(tb);
             if (startPosition != -1) {
-                data.put("unresolvedType", "" + utype);
-                data.put("resolvedType", "" + rtype);
-                data.put("nodeType", "SUPER_FIELD_ACCESS");
+                data.setUnresolvedType(intern("" + utype));
+                data.setResolvedType(intern("" + rtype));
+                data.setNodeType(NodeType.SUPER_FIELD_ACCESS);
             }
         } else {
 			String utype = "super", rtype = "super";
             if (startPosition != -1) {
-                data.put("unresolvedType", utype);
-                data.put("resolvedType", rtype);
-                data.put("nodeType", "SUPER_FIELD_ACCESS");
+                data.setUnresolvedType(intern(utype));
+                data.setResolvedType(intern(rtype));
+                data.setNodeType(NodeType.SUPER_FIELD_ACCESS);
             }
         }
         String name = "." + node.getName().getIdentifier();
 		String utype = name;
         if (startPosition != -1)
-            data.put("unresolvedType", utype);
+            data.setUnresolvedType(intern(utype));
         if (tb != null)
             name = getQualifiedName(tb) + name;
 		String rtype = name;
         if (startPosition != -1) {
-            data.put("resolvedType", rtype);
-			data.put("partial", "<blank>" + utype);
-			data.put("full", rtype);
-            data.put("nodeType", "SUPER_FIELD_ACCESS");
+            data.setResolvedType(intern(rtype));
+			data.setPartial("<blank>" + utype);
+			data.setFull(rtype);
+            data.setNodeType(NodeType.SUPER_FIELD_ACCESS);
             nodeInfo.add(data);
         }
         return false;
@@ -919,14 +857,13 @@ public class FQNSequenceGenerator extends ASTVisitor {
 
     @Override
     public boolean visit(SuperMethodInvocation node) {
-        HashMap<String, String> data = new HashMap<String, String>();
+        NodeRecord data = new NodeRecord();
         int startPosition = node.getStartPosition();
 		String utype = null, rtype = null;
         if (startPosition != -1) {
             int endPosition = startPosition + node.getLength();
-            data.put("debugText", node.toString());
-            data.put("start", "" + (startPosition - offset - 1));
-            data.put("end", "" + (endPosition - offset - 1));
+            data.setDebugText(getText(node));
+            data.setOffsets(startPosition - offset - 1, endPosition - offset - 1);
         }
 
         IMethodBinding b = node.resolveMethodBinding();
@@ -942,28 +879,28 @@ public class FQNSequenceGenerator extends ASTVisitor {
             if (startPosition != -1) {
 				utype = getName(tb);
 				rtype = getQualifiedName(tb);
-                data.put("unresolvedType", utype);
-                data.put("resolvedType", rtype);
-                data.put("nodeType", "SUPER_METHOD_INVOCATION");
+                data.setUnresolvedType(intern(utype));
+                data.setResolvedType(intern(rtype));
+                data.setNodeType(NodeType.SUPER_METHOD_INVOCATION);
             }
         } else {
             if (startPosition != -1) {
 				utype = "super";
 				rtype = "super";
-                data.put("unresolvedType", utype);
-                data.put("resolvedType", rtype);
-                data.put("nodeType", "SUPER_METHOD_INVOCATION");
+                data.setUnresolvedType(intern(utype));
+                data.setResolvedType(intern(rtype));
+                data.setNodeType(NodeType.SUPER_METHOD_INVOCATION);
             }
         }
         String name = "." + node.getName().getIdentifier();
         if (startPosition != -1) {
 			utype = name;
-            data.put("unresolvedType", utype);
+            data.setUnresolvedType(intern(utype));
 
 		}
 		String nodeArguments = "(";
         for (int i = 0; i < node.arguments().size(); i++) {
-			nodeArguments += node.arguments().get(i);
+			nodeArguments += getText((ASTNode) node.arguments().get(i));
 			if (i < node.arguments().size() - 1)
 				nodeArguments += ", ";
 		}
@@ -973,9 +910,9 @@ public class FQNSequenceGenerator extends ASTVisitor {
             name = getSignature(b.getMethodDeclaration());
 		rtype = name;
         if (startPosition != -1) {
-            data.put("resolvedType", rtype);
-			data.put("partial", "<blank>" + utype + nodeArguments);
-			data.put("full", rtype + nodeArguments);
+            data.setResolvedType(intern(rtype));
+			data.setPartial("<blank>" + utype + nodeArguments);
+			data.setFull(rtype + nodeArguments);
             nodeInfo.add(data);
         }
         for (int i = 0; i < node.arguments().size(); i++)
@@ -1017,7 +954,7 @@ public class FQNSequenceGenerator extends ASTVisitor {
     @Override
     public boolean visit(ThrowStatement node) {
 		String utype = null, rtype = null;
-        HashMap<String, String> data = new HashMap<String, String>();
+        NodeRecord data = new NodeRecord();
         int startPosition = node.getStartPosition();
 		if (node.getExpression().getClass().getSimpleName().toString().equals("SimpleName")) {
 			SimpleName simpleNameNode = (SimpleName)node.getExpression();
@@ -1044,29 +981,28 @@ public class FQNSequenceGenerator extends ASTVisitor {
 			if (utype.equals(rtype)) {
 				if (startPosition != -1) {
 					int endPosition = startPosition + node.getLength();
-					data.put("unresolvedType", utype);
-					data.put("resolvedType", rtype);
+					data.setUnresolvedType(intern(utype));
+					data.setResolvedType(intern(rtype));
 				}
 			} else {
 				if (startPosition != -1) {
-					data.put("unresolvedType", utype);
-					data.put("resolvedType", rtype);
-					data.put("partial", "throw <blank>");
-					data.put("full", "throw " + rtype);
+					data.setUnresolvedType(intern(utype));
+					data.setResolvedType(intern(rtype));
+					data.setPartial("throw <blank>");
+					data.setFull("throw " + rtype);
 				}
 			}
 		} else {
 			if (startPosition != -1) {
-				data.put("unresolvedType", null);
-				data.put("resolvedType", null);
+				data.setUnresolvedType(intern(null));
+				data.setResolvedType(intern(null));
 			}
 		}
         if (startPosition != -1) {
             int endPosition = startPosition + node.getLength();
-            data.put("debugText", node.toString());
-            data.put("nodeType", "THROW_STATEMENT");
-            data.put("start", "" + (startPosition - offset - 1));
-            data.put("end", "" + (endPosition - offset - 1));
+            data.setDebugText(getText(node));
+            data.setNodeType(NodeType.THROW_STATEMENT);
+            data.setOffsets(startPosition - offset - 1, endPosition - offset - 1);
             nodeInfo.add(data);
         }
         return super.visit(node);
@@ -1104,13 +1040,12 @@ public class FQNSequenceGenerator extends ASTVisitor {
     
     @Override
     public boolean visit(VariableDeclarationExpression node) {
-        HashMap<String, String> data = new HashMap<String, String>();
+        NodeRecord data = new NodeRecord();
         int startPosition = node.getStartPosition();
         if (startPosition != -1) {
             int endPosition = startPosition + node.getLength();
-            data.put("debugText", node.toString());
-            data.put("start", "" + (startPosition - offset - 1));
-            data.put("end", "" + (endPosition - offset - 1));
+            data.setDebugText(getText(node));
+            data.setOffsets(startPosition - offset - 1, endPosition - offset - 1);
         }
 
         ITypeBinding tb = node.getType().resolveBinding();
@@ -1120,11 +1055,11 @@ public class FQNSequenceGenerator extends ASTVisitor {
             }
             return false;
         }
-        String utype = getUnresolvedType(node.getType()), rtype = getResolvedType(node.getType());
+        String utype = getUnresolvedType(node.getType()), rtype = getResolvedTypeName(node.getType());
         if (startPosition != -1) {
-            data.put("unresolvedType", utype);
-            data.put("resolvedType", rtype);
-            data.put("nodeType", "VARIABLE_DECLARATION_EXPRESSION");
+            data.setUnresolvedType(intern(utype));
+            data.setResolvedType(intern(rtype));
+            data.setNodeType(NodeType.VARIABLE_DECLARATION_EXPRESSION);
             nodeInfo.add(data);
         }
         for (int i = 0; i < node.fragments().size(); i++)
@@ -1134,13 +1069,12 @@ public class FQNSequenceGenerator extends ASTVisitor {
 
     @Override
     public boolean visit(VariableDeclarationStatement node) {
-        HashMap<String, String> data = new HashMap<String, String>();
+        NodeRecord data = new NodeRecord();
         int startPosition = node.getStartPosition();
         if (startPosition != -1) {
             int endPosition = startPosition + node.getLength();
-            data.put("debugText", node.toString());
-            data.put("start", "" + (startPosition - offset - 1));
-            data.put("end", "" + (endPosition - offset - 1));
+            data.setDebugText(getText(node));
+            data.setOffsets(startPosition - offset - 1, endPosition - offset - 1);
         }
 
         ITypeBinding tb = node.getType().resolveBinding();
@@ -1150,11 +1084,11 @@ public class FQNSequenceGenerator extends ASTVisitor {
             }
             return false;
         }
-        String utype = getUnresolvedType(node.getType()), rtype = getResolvedType(node.getType());
+        String utype = getUnresolvedType(node.getType()), rtype = getResolvedTypeName(node.getType());
         if (startPosition != -1) {
-            data.put("unresolvedType", utype);
-            data.put("resolvedType", rtype);
-            data.put("nodeType", "VARIABLE_DECLARATION_STATEMENT");
+            data.setUnresolvedType(intern(utype));
+            data.setResolvedType(intern(rtype));
+            data.setNodeType(NodeType.VARIABLE_DECLARATION_STATEMENT);
             nodeInfo.add(data);
         }
         for (int i = 0; i < node.fragments().size(); i++)
@@ -1164,20 +1098,19 @@ public class FQNSequenceGenerator extends ASTVisitor {
 
     @Override
     public boolean visit(VariableDeclarationFragment node) {
-        HashMap<String, String> data = new HashMap<String, String>();
+        NodeRecord data = new NodeRecord();
         int startPosition = node.getStartPosition();
         if (startPosition != -1) {
             int endPosition = startPosition + node.getLength();
-            data.put("debugText", node.toString());
-            data.put("start", "" + (startPosition - offset - 1));
-            data.put("end", "" + (endPosition - offset - 1));
+            data.setDebugText(getText(node));
+            data.setOffsets(startPosition - offset - 1, endPosition - offset - 1);
         }
         Type type = getType(node);
-        String utype = getUnresolvedType(type), rtype = getResolvedType(type);
+        String utype = getUnresolvedType(type), rtype = getResolvedTypeName(type);
         if (startPosition != -1) {
-            data.put("unresolvedType", utype);
-            data.put("resolvedType", rtype);
-            data.put("nodeType", "VARIABLE_DECLARATION_FRAGMENT");
+            data.setUnresolvedType(intern(utype));
+            data.setResolvedType(intern(rtype));
+            data.setNodeType(NodeType.VARIABLE_DECLARATION_FRAGMENT);
             nodeInfo.add(data);
         }
         if (node.getInitializer() != null) {
@@ -1237,12 +1170,16 @@ public class FQNSequenceGenerator extends ASTVisitor {
     }
 
     private String getQualifiedName(ITypeBinding tb) {
+        if (cache != null)
+            return cache.getQualifiedName(tb);
         if (tb.isArray())
             return getQualifiedName(tb.getComponentType().getTypeDeclaration()) + getDimensions(tb.getDimensions());
         return tb.getQualifiedName();
     }
 
     private String getName(ITypeBinding tb) {
+        if (cache != null)
+            return cache.getName(tb);
         if (tb.isArray())
             return getName(tb.getComponentType().getTypeDeclaration()) + getDimensions(tb.getDimensions());
         return tb.getName();
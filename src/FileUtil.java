@@ -12,8 +12,13 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Map;
@@ -36,6 +41,27 @@ public class FileUtil {
 
 	}
 
+	public static String getHash(byte[] content) {
+		try {
+			MessageDigest md = MessageDigest.getInstance("SHA-1");
+			byte[] digest = md.digest(content);
+			StringBuilder sb = new StringBuilder(digest.length * 2);
+			for (byte b : digest)
+				sb.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+			return sb.toString();
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	public static String getFileHash(String fp) {
+		try {
+			return getHash(Files.readAllBytes(Paths.get(fp)));
+		} catch (IOException ex) {
+			return null;
+		}
+	}
+
 	public static ArrayList<String> getFileStringArray(String fp) {
 		ArrayList<String> lstResults = new ArrayList<String>();
 		try {
@@ -151,6 +177,46 @@ public class FileUtil {
 	}
 
 
+	/**
+	 * Returns the total size in bytes of the file, or of all the files under the directory.
+	 */
+	public static long getSize(File file) {
+		if (!file.isDirectory())
+			return file.length();
+		long size = 0;
+		File[] subs = file.listFiles();
+		if (subs != null)
+			for (File sub : subs)
+				size += getSize(sub);
+		return size;
+	}
+
+	/**
+	 * Moves source over target in one step where the file system supports it, so that target
+	 * is never missing or half written. Failures are thrown, not ignored.
+	 */
+	public static void replace(File source, File target) throws IOException {
+		try {
+			Files.move(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	/**
+	 * Writes the content as UTF-8 to a temporary file next to target, which then replaces
+	 * target (see replace). A failed write leaves target as it was.
+	 */
+	public static void writeAtomically(File target, String content) throws IOException {
+		File tmp = new File(target.getPath() + ".tmp");
+		try {
+			Files.write(tmp.toPath(), content.getBytes(StandardCharsets.UTF_8));
+			replace(tmp, target);
+		} finally {
+			Files.deleteIfExists(tmp.toPath());
+		}
+	}
+
 	public static ArrayList<File> getPaths(File file) {
 		ArrayList<File> files = new ArrayList<>();
 		if (file.isDirectory())
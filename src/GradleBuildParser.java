@@ -0,0 +1,417 @@
+package fqntypeparser;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Reads the external module dependencies of a build.gradle in a single pass: the file is
+ * tokenized once, and a small evaluator walks the tokens, keeping track of variables (plain
+ * assignments, def, ext blocks, ext.name and maps of them) and collecting the dependencies
+ * declared in any dependencies block in string ('group:name:version') or map (group: ...,
+ * name: ..., version: ...) notation. Double-quoted strings are interpolated. Anything it does
+ * not understand, e.g. project(...) or files(...), is skipped. Results are cached by the
+ * content hash of the file.
+ */
+public class GradleBuildParser {
+    private static final HashSet<String> CONFIGURATIONS = new HashSet<>(Arrays.asList(
+            "compile", "api", "implementation", "compileOnly", "provided", "classpath"));
+    private static final String[] CONFIGURATION_SUFFIXES = {"Compile", "Api", "Implementation", "CompileOnly"};
+    private static final List<String> SCOPES = Arrays.asList("rootProject.ext.", "project.ext.", "rootProject.", "project.", "ext.");
+    private static final ConcurrentHashMap<String, List<String[]>> CACHE = new ConcurrentHashMap<>();
+
+    private static final int IDENTIFIER = 0, STRING = 1, GSTRING = 2, NUMBER = 3, PUNCTUATION = 4;
+
+    private final ArrayList<Integer> kinds = new ArrayList<>();
+    private final ArrayList<String> texts = new ArrayList<>();
+    private int pos = 0;
+    private final HashMap<String, Object> variables = new HashMap<>();
+    private final ArrayList<String[]> dependencies = new ArrayList<>();
+
+    private GradleBuildParser(String content) {
+        tokenize(content);
+    }
+
+    /**
+     * Returns the dependencies of the build file as {group, name, version} triples, version
+     * "null" where the declaration has none. Values that refer to unknown variables keep their
+     * $ references. Returns an empty list if the file cannot be read.
+     */
+    public static List<String[]> getDependencies(String path) {
+        byte[] content;
+        try {
+            content = Files.readAllBytes(Paths.get(path));
+        } catch (IOException e) {
+            return Collections.emptyList();
+        }
+        String hash = FileUtil.getHash(content);
+        List<String[]> deps = CACHE.get(hash);
+        if (deps == null) {
+            GradleBuildParser parser = new GradleBuildParser(new String(content, java.nio.charset.StandardCharsets.UTF_8));
+            parser.parseBlock(false, false);
+            deps = Collections.unmodifiableList(parser.dependencies);
+            CACHE.putIfAbsent(hash, deps);
+        }
+        ArrayList<String[]> copy = new ArrayList<>(deps.size());
+        for (String[] values : deps)
+            copy.add(values.clone());
+        return copy;
+    }
+
+    // ---- evaluator
+
+    private void parseBlock(boolean inDependencies, boolean inExt) {
+        while (pos < texts.size()) {
+            if (is("}")) {
+                pos++;
+                return;
+            }
+            if (is("{")) {
+                // e.g. the body of an if: its declarations still belong to the enclosing block
+                pos++;
+                parseBlock(inDependencies, false);
+                continue;
+            }
+            if (kind(pos) != IDENTIFIER) {
+                pos++;
+                continue;
+            }
+            int start = pos;
+            String name = readDottedName();
+            if (name.equals("def") && kind(pos) == IDENTIFIER)
+                name = readDottedName();
+            if (is("{")) {
+                pos++;
+                parseBlock(name.equals("dependencies"), name.equals("ext") || name.endsWith(".ext"));
+            } else if (is("=") && !is(pos + 1, "=")) {
+                pos++;
+                assign(name, parseExpression());
+            } else if (inExt && name.equals("set") && is("(")) {
+                pos++;
+                Object key = parseExpression();
+                if (is(",")) {
+                    pos++;
+                    Object value = parseExpression();
+                    if (key instanceof String)
+                        assign((String) key, value);
+                }
+            } else if (inDependencies && isConfiguration(name)) {
+                addDependencies(parseArguments());
+                if (is("{"))
+                    skipBlock();
+            } else if (pos == start) {
+                pos++;
+            }
+        }
+    }
+
+    private static boolean isConfiguration(String name) {
+        if (CONFIGURATIONS.contains(name))
+            return true;
+        for (String suffix : CONFIGURATION_SUFFIXES)
+            if (name.endsWith(suffix) && name.length() > suffix.length() && Character.isLowerCase(name.charAt(0)))
+                return true;
+        return false;
+    }
+
+    private void assign(String name, Object value) {
+        if (value == null)
+            return;
+        name = unscope(name);
+        variables.put(name, value);
+    }
+
+    private static String unscope(String name) {
+        for (String scope : SCOPES)
+            if (name.startsWith(scope))
+                return name.substring(scope.length());
+        return name;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Object lookup(String name) {
+        name = unscope(name);
+        Object value = variables.get(name);
+        if (value != null)
+            return value;
+        // libs.junit, where libs is a map
+        int index = name.lastIndexOf('.');
+        while (index > 0) {
+            Object map = variables.get(name.substring(0, index));
+            if (map instanceof Map)
+                return ((Map<String, Object>) map).get(name.substring(index + 1));
+            index = name.lastIndexOf('.', index - 1);
+        }
+        return null;
+    }
+
+    // The arguments of a configuration: either parenthesized or up to the end of the
+    // statement, as a list of values.
+    private List<Object> parseArguments() {
+        boolean parenthesized = is("(");
+        if (parenthesized)
+            pos++;
+        ArrayList<Object> args = new ArrayList<>();
+        LinkedHashMap<String, Object> named = new LinkedHashMap<>();
+        while (pos < texts.size() && !is(")") && !is("}") && !is("{")) {
+            if (kind(pos) == IDENTIFIER && is(pos + 1, ":")) {
+                String key = texts.get(pos);
+                pos += 2;
+                named.put(key, parseExpression());
+            } else {
+                int start = pos;
+                Object value = parseExpression();
+                if (pos == start)
+                    break;
+                args.add(value);
+            }
+            if (!is(","))
+                break;
+            pos++;
+        }
+        if (parenthesized && is(")"))
+            pos++;
+        if (!named.isEmpty())
+            args.add(named);
+        return args;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void addDependencies(List<Object> args) {
+        for (Object arg : args) {
+            if (arg instanceof String) {
+                String[] values = ((String) arg).split(":");
+                if (values.length == 2)
+                    dependencies.add(new String[]{values[0], values[1], "null"});
+                else if (values.length >= 3)
+                    dependencies.add(new String[]{values[0], values[1], values[2]});
+            } else if (arg instanceof Map) {
+                Map<String, Object> map = (Map<String, Object>) arg;
+                Object group = map.get("group"), name = map.get("name"), version = map.get("version");
+                if (group instanceof String && name instanceof String)
+                    dependencies.add(new String[]{(String) group, (String) name, version instanceof String ? (String) version : "null"});
+            } else if (arg instanceof List) {
+                addDependencies((List<Object>) arg);
+            }
+        }
+    }
+
+    // expression := primary ('+' primary)*, evaluating to a String, Map, List or null
+    private Object parseExpression() {
+        Object value = parsePrimary();
+        while (is("+")) {
+            pos++;
+            Object next = parsePrimary();
+            value = value instanceof String && next instanceof String ? (String) value + next : null;
+        }
+        return value;
+    }
+
+    private Object parsePrimary() {
+        if (pos >= texts.size())
+            return null;
+        int kind = kind(pos);
+        String text = texts.get(pos);
+        if (kind == STRING || kind == NUMBER) {
+            pos++;
+            return text;
+        }
+        if (kind == GSTRING) {
+            pos++;
+            return interpolate(text);
+        }
+        if (kind == IDENTIFIER) {
+            String name = readDottedName();
+            if (is("(")) {
+                // a method call such as project(':core') or files('a.jar'): not a module
+                skipBalanced("(", ")");
+                if (is("{"))
+                    skipBlock();
+                return null;
+            }
+            return lookup(name);
+        }
+        if (text.equals("[")) {
+            pos++;
+            return parseList();
+        }
+        if (text.equals("(")) {
+            pos++;
+            Object value = parseExpression();
+            if (is(")"))
+                pos++;
+            return value;
+        }
+        return null;
+    }
+
+    // [a, b] or [key: a, key: b], after the opening bracket
+    private Object parseList() {
+        ArrayList<Object> list = new ArrayList<>();
+        LinkedHashMap<String, Object> map = new LinkedHashMap<>();
+        while (pos < texts.size() && !is("]")) {
+            int start = pos;
+            if ((kind(pos) == IDENTIFIER || kind(pos) == STRING || kind(pos) == GSTRING) && is(pos + 1, ":")) {
+                String key = texts.get(pos);
+                pos += 2;
+                map.put(key, parseExpression());
+            } else {
+                list.add(parseExpression());
+            }
+            if (is(","))
+                pos++;
+            else if (pos == start)
+                pos++;
+        }
+        if (is("]"))
+            pos++;
+        return map.isEmpty() ? list : map;
+    }
+
+    // Replaces $name and ${name} by the values of known variables, keeping unknown references.
+    private String interpolate(String s) {
+        if (s.indexOf('$') == -1)
+            return s;
+        StringBuilder sb = new StringBuilder(s.length());
+        int i = 0;
+        while (i < s.length()) {
+            char c = s.charAt(i);
+            if (c != '$' || i + 1 == s.length()) {
+                sb.append(c);
+                i++;
+                continue;
+            }
+            int start, end, next;
+            if (s.charAt(i + 1) == '{') {
+                start = i + 2;
+                end = s.indexOf('}', start);
+                if (end == -1) {
+                    sb.append(s, i, s.length());
+                    break;
+                }
+                next = end + 1;
+            } else {
+                start = end = i + 1;
+                while (end < s.length() && (Character.isJavaIdentifierPart(s.charAt(end)) || (s.charAt(end) == '.'
+                        && end + 1 < s.length() && Character.isJavaIdentifierStart(s.charAt(end + 1)))))
+                    end++;
+                next = end;
+            }
+            Object value = start < end ? lookup(s.substring(start, end).trim()) : null;
+            if (value instanceof String)
+                sb.append((String) value);
+            else
+                sb.append(s, i, next);
+            i = next;
+        }
+        return sb.toString();
+    }
+
+    private String readDottedName() {
+        StringBuilder sb = new StringBuilder(texts.get(pos++));
+        while (is(".") && kind(pos + 1) == IDENTIFIER) {
+            sb.append('.').append(texts.get(pos + 1));
+            pos += 2;
+        }
+        return sb.toString();
+    }
+
+    private void skipBlock() {
+        skipBalanced("{", "}");
+    }
+
+    private void skipBalanced(String open, String close) {
+        int depth = 0;
+        while (pos < texts.size()) {
+            String text = texts.get(pos++);
+            if (kind(pos - 1) != PUNCTUATION)
+                continue;
+            if (text.equals(open))
+                depth++;
+            else if (text.equals(close) && --depth == 0)
+                return;
+        }
+    }
+
+    private boolean is(String text) {
+        return is(pos, text);
+    }
+
+    private boolean is(int i, String text) {
+        return i < texts.size() && kinds.get(i) == PUNCTUATION && texts.get(i).equals(text);
+    }
+
+    private int kind(int i) {
+        return i < kinds.size() ? kinds.get(i) : -1;
+    }
+
+    // ---- tokenizer
+
+    private void tokenize(String s) {
+        int n = s.length(), i = 0;
+        while (i < n) {
+            char c = s.charAt(i);
+            if (Character.isWhitespace(c) || c == ';') {
+                i++;
+            } else if (c == '/' && i + 1 < n && s.charAt(i + 1) == '/') {
+                while (i < n && s.charAt(i) != '\n')
+                    i++;
+            } else if (c == '/' && i + 1 < n && s.charAt(i + 1) == '*') {
+                int end = s.indexOf("*/", i + 2);
+                i = end == -1 ? n : end + 2;
+            } else if (c == '\'' || c == '"') {
+                i = readString(s, i, c);
+            } else if (Character.isJavaIdentifierStart(c)) {
+                int start = i;
+                while (i < n && Character.isJavaIdentifierPart(s.charAt(i)))
+                    i++;
+                add(IDENTIFIER, s.substring(start, i));
+            } else if (Character.isDigit(c)) {
+                int start = i;
+                while (i < n && (Character.isLetterOrDigit(s.charAt(i)) || s.charAt(i) == '.' || s.charAt(i) == '_' || s.charAt(i) == '-'))
+                    i++;
+                add(NUMBER, s.substring(start, i));
+            } else {
+                add(PUNCTUATION, String.valueOf(c));
+                i++;
+            }
+        }
+    }
+
+    private int readString(String s, int i, char quote) {
+        int n = s.length();
+        boolean triple = i + 2 < n && s.charAt(i + 1) == quote && s.charAt(i + 2) == quote;
+        int start = triple ? i + 3 : i + 1, j = start;
+        StringBuilder sb = new StringBuilder();
+        while (j < n) {
+            char c = s.charAt(j);
+            if (c == '\\' && j + 1 < n) {
+                sb.append(s.charAt(j + 1));
+                j += 2;
+                continue;
+            }
+            if (c == quote && (!triple || (j + 2 < n && s.charAt(j + 1) == quote && s.charAt(j + 2) == quote)))
+                break;
+            if (c == '\n' && !triple)
+                break;
+            sb.append(c);
+            j++;
+        }
+        add(quote == '"' ? GSTRING : STRING, sb.toString());
+        return Math.min(n, j + (triple ? 3 : 1));
+    }
+
+    private void add(int kind, String text) {
+        kinds.add(kind);
+        texts.add(text);
+    }
+}
@@ -0,0 +1,173 @@
+package fqntypeparser;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Appends one JSON line per method to rolling shard files (sequences-00000.jsonl, ...). A new
+ * shard is started once the current one would grow past the configured size. Every run starts
+ * a new shard, so shards of earlier runs are only ever touched by remove or clear.
+ */
+public class JsonlShardSink implements SequenceSink {
+    public static final String PREFIX = "sequences-", EXTENSION = ".jsonl";
+    public static final long DEFAULT_SHARD_SIZE = 64L << 20;
+
+    private File dir;
+    private long shardSize;
+    private int nextShard;
+    private File current;
+    private OutputStream out;
+    private long currentSize = 0, bytesWritten = 0;
+
+    public JsonlShardSink(String outPath) {
+        this(outPath, DEFAULT_SHARD_SIZE);
+    }
+
+    public JsonlShardSink(String outPath, long shardSize) {
+        this.dir = new File(outPath);
+        this.shardSize = shardSize;
+        dir.mkdirs();
+        nextShard = getNextShardIndex(dir, PREFIX, EXTENSION);
+    }
+
+    static int getNextShardIndex(File dir, String prefix, String extension) {
+        int next = 0;
+        String[] names = dir.list();
+        if (names == null)
+            return next;
+        for (String name : names) {
+            if (name.startsWith(prefix) && name.endsWith(extension)) {
+                try {
+                    int index = Integer.parseInt(name.substring(prefix.length(), name.length() - extension.length()));
+                    next = Math.max(next, index + 1);
+                } catch (NumberFormatException e) {
+                }
+            }
+        }
+        return next;
+    }
+
+    // deletes the shards of every format, so a run in one format leaves none of another behind
+    static void deleteShards(File dir, String prefix) throws IOException {
+        File[] files = dir.listFiles();
+        if (files == null)
+            return;
+        for (File file : files) {
+            String name = file.getName();
+            if (name.startsWith(prefix) && (name.endsWith(EXTENSION) || name.endsWith(BinaryShardSink.EXTENSION)))
+                Files.delete(file.toPath());
+        }
+    }
+
+    static File getShardFile(File dir, String prefix, int index, String extension) {
+        return new File(dir, String.format("%s%05d%s", prefix, index, extension));
+    }
+
+    @Override
+    public String write(SequenceRecord record) throws IOException {
+        StringBuilder sb = new StringBuilder(4096);
+        record.appendJson(sb);
+        sb.append('\n');
+        byte[] bytes = sb.toString().getBytes(StandardCharsets.UTF_8);
+        synchronized (this) {
+            if (out == null || (currentSize > 0 && currentSize + bytes.length > shardSize))
+                roll();
+            out.write(bytes);
+            currentSize += bytes.length;
+            bytesWritten += bytes.length;
+            return current.getAbsolutePath();
+        }
+    }
+
+    @Override
+    public synchronized long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    private void roll() throws IOException {
+        if (out != null)
+            out.close();
+        current = getShardFile(dir, PREFIX, nextShard++, EXTENSION);
+        out = new BufferedOutputStream(new FileOutputStream(current), 1 << 16);
+        currentSize = 0;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (out != null) {
+            out.close();
+            out = null;
+        }
+    }
+
+    @Override
+    public synchronized void clear() throws IOException {
+        deleteShards(dir, PREFIX);
+        nextShard = 0;
+    }
+
+    @Override
+    public synchronized void remove(Set<String> outputs, Set<String> sourcePaths) throws IOException {
+        if (sourcePaths.isEmpty())
+            return;
+        HashSet<String> prefixes = new HashSet<>();
+        for (String path : sourcePaths)
+            prefixes.add(SequenceRecord.getJsonPrefix(path));
+        for (String output : outputs) {
+            File shard = new File(output);
+            if (!shard.exists() || shard.equals(current))
+                continue;
+            File tmp = new File(shard.getPath() + ".tmp");
+            int kept = 0;
+            try {
+                try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(shard), StandardCharsets.UTF_8));
+                        Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(tmp), StandardCharsets.UTF_8))) {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        if (prefixes.contains(getPathPrefix(line)))
+                            continue;
+                        writer.write(line);
+                        writer.write('\n');
+                        kept++;
+                    }
+                }
+                // the shard is only replaced once the rewrite is complete
+                if (kept == 0)
+                    Files.delete(shard.toPath());
+                else
+                    FileUtil.replace(tmp, shard);
+            } finally {
+                Files.deleteIfExists(tmp.toPath());
+            }
+        }
+    }
+
+    /**
+     * Returns the leading {"path":"...", of a line written by this sink.
+     */
+    private static String getPathPrefix(String line) {
+        int i = "{\"path\":\"".length();
+        while (i < line.length()) {
+            char ch = line.charAt(i);
+            if (ch == '\\')
+                i++;
+            else if (ch == '"')
+                return line.substring(0, Math.min(i + 2, line.length()));
+            i++;
+        }
+        return line;
+    }
+}
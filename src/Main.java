@@ -18,20 +18,48 @@ public class Main {
 		String[] srcPaths = new String[]{"android", "gwt", "hibernate-orm", "jdk", "joda-time", "xstream"};
 		String outBasePath = "C:\\Users\\axy190020\\Desktop\\fqndata\\typedata\\";
 
-		for (int i = 0; i < libs.length; i++) {
-			ProjectSequencesGenerator psg = new ProjectSequencesGenerator(basePath + srcPaths[i], false);
-			File outDir = new File(outBasePath + srcPaths[i]);
-			int n = 0;
-			if (!outDir.exists())
-				outDir.mkdirs();
-			try {
-				n = psg.generateSequences(false, libs[i], outDir.getAbsolutePath());
-			} catch (Throwable t) {
-				t.printStackTrace();
+		int poolSize = Runtime.getRuntime().availableProcessors();
+		DependencyResolver resolver = DependencyResolver.getDefault();
+		ArrayList<String> remoteRepos = new ArrayList<>();
+		boolean forceClasspath = false;
+		for (int i = 0; i < args.length; i++) {
+			if (args[i].equals("--online"))
+				resolver.setOffline(false);
+			else if (args[i].equals("--offline"))
+				resolver.setOffline(true);
+			else if (args[i].equals("--force-classpath"))
+				forceClasspath = true;
+			else if (args[i].equals("--local-repo") && i + 1 < args.length) {
+				File dir = new File(args[++i]);
+				if (!dir.isDirectory()) {
+					System.err.println("Not a directory: " + dir);
+					System.exit(1);
+				}
+				resolver.addLocalRepository(dir);
+			} else if (args[i].equals("--remote-repo") && i + 1 < args.length) {
+				String url = args[++i];
+				remoteRepos.add(url.endsWith("/") ? url : url + "/");
+			} else if (args[i].matches("\\d+"))
+				poolSize = Integer.parseInt(args[i]);
+			else {
+				System.err.println("Usage: Main [poolSize] [--local-repo dir]... [--online] [--remote-repo url]... [--force-classpath]");
+				System.exit(1);
 			}
-
-			long end = System.currentTimeMillis();
-			System.out.println("Finish parsing corpus in " + (end - start) / 1000);
 		}
+		if (!remoteRepos.isEmpty())
+			resolver.setRemoteRepositories(remoteRepos.toArray(new String[0]));
+		CorpusScheduler scheduler = new CorpusScheduler(poolSize);
+		scheduler.setForceClasspathResolution(forceClasspath);
+		for (int i = 0; i < libs.length; i++)
+			scheduler.add(srcPaths[i], basePath + srcPaths[i], libs[i], outBasePath + srcPaths[i]);
+		try {
+			scheduler.run();
+		} catch (InterruptedException e) {
+			e.printStackTrace();
+		}
+		scheduler.printSummary();
+
+		long end = System.currentTimeMillis();
+		System.out.println("Finish parsing all corpora in " + (end - start) / 1000);
     }
 }
\ No newline at end of file
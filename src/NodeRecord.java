@@ -0,0 +1,150 @@
+package fqntypeparser;
+
+import java.util.HashMap;
+
+/**
+ * Type information recorded for one AST node. Fields are tracked in a bit set so that the
+ * serialized form only contains the keys a visitor actually set, exactly like the maps it
+ * replaces.
+ */
+public class NodeRecord {
+    public static final int DEBUG_TEXT = 0, UNRESOLVED_TYPE = 1, RESOLVED_TYPE = 2, PARTIAL = 3, FULL = 4, NODE_TYPE = 5, START = 6, END = 7;
+    public static final String[] KEYS = {"debugText", "unresolvedType", "resolvedType", "partial", "full", "nodeType", "start", "end"};
+
+    private int fields = 0;
+    private NodeType nodeType;
+    private int start, end;
+    private CharSequence debugText;
+    private String unresolvedType, resolvedType, partial, full;
+
+    public boolean has(int field) {
+        return (fields & (1 << field)) != 0;
+    }
+
+    public int getFields() {
+        return fields;
+    }
+
+    public NodeType getNodeType() {
+        return nodeType;
+    }
+
+    public void setNodeType(NodeType nodeType) {
+        this.nodeType = nodeType;
+        fields |= 1 << NODE_TYPE;
+    }
+
+    public int getStart() {
+        return start;
+    }
+
+    public int getEnd() {
+        return end;
+    }
+
+    public void setOffsets(int start, int end) {
+        this.start = start;
+        this.end = end;
+        fields |= (1 << START) | (1 << END);
+    }
+
+    public CharSequence getDebugText() {
+        return debugText;
+    }
+
+    /**
+     * The text may be a view of the source buffer; it is only copied when serialized.
+     */
+    public void setDebugText(CharSequence debugText) {
+        this.debugText = debugText;
+        fields |= 1 << DEBUG_TEXT;
+    }
+
+    public String getUnresolvedType() {
+        return unresolvedType;
+    }
+
+    public void setUnresolvedType(String unresolvedType) {
+        this.unresolvedType = unresolvedType;
+        fields |= 1 << UNRESOLVED_TYPE;
+    }
+
+    public String getResolvedType() {
+        return resolvedType;
+    }
+
+    public void setResolvedType(String resolvedType) {
+        this.resolvedType = resolvedType;
+        fields |= 1 << RESOLVED_TYPE;
+    }
+
+    public String getPartial() {
+        return partial;
+    }
+
+    public void setPartial(String partial) {
+        this.partial = partial;
+        fields |= 1 << PARTIAL;
+    }
+
+    public String getFull() {
+        return full;
+    }
+
+    public void setFull(String full) {
+        this.full = full;
+        fields |= 1 << FULL;
+    }
+
+    /**
+     * Returns the value of the field as it appears in the JSON output.
+     */
+    public String get(int field) {
+        switch (field) {
+        case DEBUG_TEXT:
+            return debugText == null ? null : debugText.toString();
+        case UNRESOLVED_TYPE:
+            return unresolvedType;
+        case RESOLVED_TYPE:
+            return resolvedType;
+        case PARTIAL:
+            return partial;
+        case FULL:
+            return full;
+        case NODE_TYPE:
+            return nodeType == null ? null : nodeType.name();
+        case START:
+            return Integer.toString(start);
+        case END:
+            return Integer.toString(end);
+        }
+        throw new IllegalArgumentException("Unknown field " + field);
+    }
+
+    /**
+     * Returns the map representation the JSON output was originally produced from.
+     */
+    public HashMap<String, String> toMap() {
+        HashMap<String, String> data = new HashMap<>();
+        for (int i = 0; i < KEYS.length; i++)
+            if (has(i))
+                data.put(KEYS[i], get(i));
+        return data;
+    }
+
+    public void appendJson(StringBuilder sb) {
+        sb.append('{');
+        boolean first = true;
+        for (int i = 0; i < KEYS.length; i++) {
+            if (!has(i))
+                continue;
+            if (!first)
+                sb.append(',');
+            first = false;
+            SequenceRecord.appendString(sb, KEYS[i]);
+            sb.append(':');
+            SequenceRecord.appendString(sb, i == DEBUG_TEXT ? debugText : get(i));
+        }
+        sb.append('}');
+    }
+}
@@ -0,0 +1,31 @@
+package fqntypeparser;
+
+/**
+ * Kinds of AST nodes recorded by FQNSequenceGenerator. The binary output stores the ordinal in
+ * a single byte, so constants must only ever be appended.
+ */
+public enum NodeType {
+    ARRAY_CREATION,
+    CAST_EXPRESSION,
+    CLASS_INSTANCE_CREATION,
+    CONSTRUCTOR_INVOCATION,
+    FIELD_ACCESS,
+    INSTANCEOF_EXPRESSION,
+    METHOD_INVOCATION,
+    QUALIFIED_NAME,
+    SIMPLE_NAME,
+    SINGLE_VARIABLE_DECLARATION,
+    SUPER_CONSTRUCTOR_INVOCATION,
+    SUPER_FIELD_ACCESS,
+    SUPER_METHOD_INVOCATION,
+    THROW_STATEMENT,
+    VARIABLE_DECLARATION_EXPRESSION,
+    VARIABLE_DECLARATION_FRAGMENT,
+    VARIABLE_DECLARATION_STATEMENT;
+
+    private static final NodeType[] VALUES = values();
+
+    public static NodeType valueOf(int ordinal) {
+        return VALUES[ordinal];
+    }
+}
@@ -0,0 +1,85 @@
+package fqntypeparser;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Character trie over a set of prefixes, e.g. the library prefixes of a corpus run. Looking up
+ * a name walks it once, whatever the number of prefixes, and reaches every prefix of the name
+ * on the way. Built before a run and only read during it, so lookups need no locking.
+ */
+public class PrefixTrie<V> {
+    private static class Node<V> {
+        // children.get(i) is reached through labels[i]
+        private char[] labels = new char[0];
+        private ArrayList<Node<V>> children = new ArrayList<>(0);
+        private V value;
+
+        private Node<V> get(char c) {
+            for (int i = 0; i < labels.length; i++)
+                if (labels[i] == c)
+                    return children.get(i);
+            return null;
+        }
+
+        private Node<V> add(char c) {
+            Node<V> child = get(c);
+            if (child == null) {
+                child = new Node<>();
+                labels = Arrays.copyOf(labels, labels.length + 1);
+                labels[labels.length - 1] = c;
+                children.add(child);
+            }
+            return child;
+        }
+    }
+
+    private final Node<V> root = new Node<>();
+    private int size = 0;
+
+    /**
+     * Maps the prefix to the value, replacing the value of an equal prefix.
+     */
+    public void put(String prefix, V value) {
+        Node<V> node = root;
+        for (int i = 0; i < prefix.length(); i++)
+            node = node.add(prefix.charAt(i));
+        if (node.value == null)
+            size++;
+        node.value = value;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns whether some prefix is a prefix of the name.
+     */
+    public boolean matches(String name) {
+        Node<V> node = root;
+        for (int i = 0; node != null; i++) {
+            if (node.value != null)
+                return true;
+            if (i == name.length())
+                break;
+            node = node.get(name.charAt(i));
+        }
+        return false;
+    }
+
+    /**
+     * Adds the values of all the prefixes of the name to values, shortest first.
+     */
+    public void collect(String name, Collection<V> values) {
+        Node<V> node = root;
+        for (int i = 0; node != null; i++) {
+            if (node.value != null)
+                values.add(node.value);
+            if (i == name.length())
+                break;
+            node = node.get(name.charAt(i));
+        }
+    }
+}
@@ -1,21 +1,22 @@
 package fqntypeparser;
 
 import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.Stack;
-import java.util.stream.Collectors;
-import java.util.stream.IntStream;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.eclipse.jdt.core.JavaCore;
 import org.eclipse.jdt.core.dom.*;
@@ -39,6 +40,24 @@ public class ProjectSequencesGenerator {
     private String inPath, outPath;
     private boolean testing = false;
     private HashSet<String> badFiles = new HashSet<>();
+    private int batchSize = 0, numOfThreads = 1;
+    private boolean incremental = true;
+    private long shardSize = JsonlShardSink.DEFAULT_SHARD_SIZE;
+    private boolean binaryOutput = false;
+    private SourceManifest manifest;
+    // the output of every library, and the libraries by prefix, null if nothing is filtered
+    private ArrayList<LibraryOutput> outputs;
+    private PrefixTrie<LibraryOutput> libraries;
+    private SymbolTable symbols = new SymbolTable();
+    private AtomicLong bindingCacheHits = new AtomicLong(), bindingCacheMisses = new AtomicLong();
+    private AtomicLong numOfNodes = new AtomicLong();
+    private RunStats stats = new RunStats();
+    private ResolutionStats resolution = new ResolutionStats();
+    private int numOfSkippedFiles = 0;
+    private boolean forceClasspathResolution = false, classpathCached = false;
+    private ClasspathBuilder.VersionPolicy versionPolicy = ClasspathBuilder.VersionPolicy.HIGHEST;
+    private int numOfInvalidJars = 0, numOfDuplicateJars = 0;
+    private DependencyResolver resolver = DependencyResolver.getDefault();
     
     public ProjectSequencesGenerator(String inPath) {
         this.inPath = inPath;
@@ -53,80 +72,452 @@ public class ProjectSequencesGenerator {
         return generateSequences(true, null, outPath);
     }
 
+    /**
+     * Splits the source files of every root into batches of the given size, each parsed by its
+     * own ASTParser. A size of zero or less parses every root in a single batch.
+     */
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public void setNumOfThreads(int numOfThreads) {
+        this.numOfThreads = Math.max(1, numOfThreads);
+    }
+
+    /**
+     * When enabled (the default), a manifest kept in the output directory restricts parsing to
+     * the files that are new or changed since the last run against the same classpath.
+     */
+    public void setIncremental(boolean incremental) {
+        this.incremental = incremental;
+    }
+
+    /**
+     * When enabled, the dependencies are discovered and fetched again even if the build files
+     * and jars match the classpath manifest (see ClasspathManifest) of the last run.
+     */
+    public void setForceClasspathResolution(boolean forceClasspathResolution) {
+        this.forceClasspathResolution = forceClasspathResolution;
+    }
+
+    /**
+     * Sets which version of an artifact stays on the classpath when several are found (see
+     * ClasspathBuilder), the highest unless set.
+     */
+    public void setVersionPolicy(ClasspathBuilder.VersionPolicy versionPolicy) {
+        this.versionPolicy = versionPolicy;
+    }
+
+    /**
+     * Sets where the dependencies of the build files are looked up, DependencyResolver.getDefault()
+     * unless set.
+     */
+    public void setDependencyResolver(DependencyResolver resolver) {
+        this.resolver = resolver;
+    }
+
+    /**
+     * Sets the size in bytes after which the output rolls over to a new shard.
+     */
+    public void setShardSize(long shardSize) {
+        this.shardSize = shardSize;
+    }
+
+    /**
+     * Writes compact binary shards (see BinaryShardSink) instead of JSONL.
+     */
+    public void setBinaryOutput(boolean binaryOutput) {
+        this.binaryOutput = binaryOutput;
+    }
+
+    /**
+     * Shares the interning table for type names and signatures, e.g. between several corpora.
+     */
+    public void setSymbolTable(SymbolTable symbols) {
+        this.symbols = symbols;
+    }
+
+    public SymbolTable getSymbolTable() {
+        return symbols;
+    }
+
+    /**
+     * The number of AST nodes recorded in the written sequences so far.
+     */
+    public long getNumOfNodes() {
+        return numOfNodes.get();
+    }
+
+    /**
+     * The stage timings and counters of the last run, also written to RunStats.REPORT_FILE in
+     * its output directory.
+     */
+    public RunStats getRunStats() {
+        return stats;
+    }
+
+    /**
+     * The binding-resolution coverage of the last run, also part of its report.
+     */
+    public ResolutionStats getResolutionStats() {
+        return resolution;
+    }
+
+    /**
+     * The number of source files of the last run that the lib pre-filter kept out of the parser.
+     */
+    public int getNumOfSkippedFiles() {
+        return numOfSkippedFiles;
+    }
+
+    private SequenceSink newSink(String outPath) {
+        if (binaryOutput)
+            return new BinaryShardSink(outPath, shardSize, symbols);
+        return new JsonlShardSink(outPath, shardSize);
+    }
+
+    /**
+     * The output stream of one library of a run.
+     */
+    private static class LibraryOutput {
+        private final String lib, outPath;
+        private final SequenceSink sink;
+        private final AtomicInteger numOfSequences = new AtomicInteger();
+
+        private LibraryOutput(String lib, String outPath, SequenceSink sink) {
+            this.lib = lib;
+            this.outPath = outPath;
+            this.sink = sink;
+        }
+
+        // the outputs of this library's sink, which only touches its own directory
+        private Set<String> getOutputs(Set<String> outputs) {
+            File dir = new File(outPath).getAbsoluteFile();
+            HashSet<String> own = new HashSet<>();
+            for (String output : outputs)
+                if (dir.equals(new File(output).getAbsoluteFile().getParentFile()))
+                    own.add(output);
+            return own;
+        }
+    }
+
+    /**
+     * Returns the name of the subdirectory generateSequencesByLibrary writes a library to, the
+     * prefix without trailing dots, e.g. org.apache.commons for org.apache.commons.
+     */
+    public static String getLibraryDir(String lib) {
+        int end = lib.length();
+        while (end > 0 && lib.charAt(end - 1) == '.')
+            end--;
+        String dir = lib.substring(0, end).replaceAll("[^A-Za-z0-9._-]", "_");
+        return dir.isEmpty() ? "_" : dir;
+    }
+
     public int generateSequences(final boolean keepUnresolvables, final String lib, final String outPath) {
+        new File(outPath).mkdirs();
+        outputs = new ArrayList<>();
+        outputs.add(new LibraryOutput(lib, outPath, newSink(outPath)));
+        libraries = null;
+        if (lib != null) {
+            libraries = new PrefixTrie<>();
+            libraries.put(lib, outputs.get(0));
+        }
+        return extractSequences(keepUnresolvables, outPath, lib == null ? "" : "|" + lib);
+    }
+
+    /**
+     * Extracts the sequences of several libraries from a single pass over the corpus. The methods
+     * of a file go to every library that its package or one of its imports starts with, each
+     * library into its own subdirectory of outPath (see getLibraryDir), and files that match no
+     * library are not parsed. Returns the number of extracted methods, each counted once.
+     */
+    public int generateSequencesByLibrary(final boolean keepUnresolvables, Collection<String> libs, final String outPath) {
+        outputs = new ArrayList<>();
+        libraries = new PrefixTrie<>();
+        StringBuilder key = new StringBuilder();
+        for (String lib : new TreeSet<>(libs)) {
+            String libOutPath = new File(outPath, getLibraryDir(lib)).getAbsolutePath();
+            new File(libOutPath).mkdirs();
+            LibraryOutput output = new LibraryOutput(lib, libOutPath, newSink(libOutPath));
+            outputs.add(output);
+            libraries.put(lib, output);
+            key.append('|').append(lib);
+        }
+        return extractSequences(keepUnresolvables, outPath, key.toString());
+    }
+
+    // Runs the corpus into the outputs and libraries set up by the caller. The library key is
+    // part of the classpath fingerprint, so changing the libraries re-parses every file.
+    private int extractSequences(final boolean keepUnresolvables, final String outPath, String libraryKey) {
+        long start = System.nanoTime();
         this.outPath = outPath;
-        String[] jarPaths = getJarPaths();
+        stats = new RunStats();
+        resolution = new ResolutionStats();
+        numOfSkippedFiles = 0;
+        long nodesBefore = numOfNodes.get();
+        RunStats.Split split = stats.start(RunStats.Stage.JAR_DISCOVERY);
+        final String[] jarPaths = getJarPaths(split);
+        split.stop();
+        stats.addItems(RunStats.Stage.JAR_DISCOVERY, jarPaths.length);
         ArrayList<String> rootPaths = getRootPaths();
         new File(outPath).mkdirs();
         int numOfSequences = 0;
+        manifest = null;
+        if (incremental) {
+            manifest = SourceManifest.load(outPath);
+            manifest.setClasspathFingerprint(SourceManifest.getClasspathFingerprint(jarPaths) + libraryKey);
+        }
+        // Without a manifest nothing tells which records earlier runs wrote, so a rerun into
+        // the same directory starts over instead of appending a second copy.
+        if (manifest == null || manifest.size() == 0) {
+            try {
+                for (LibraryOutput output : outputs)
+                    output.sink.clear();
+            } catch (IOException ex) {
+                System.err.println("Cannot delete the earlier sequences in " + outPath + ": " + ex);
+            }
+        }
+        HashSet<String> allSourcePaths = new HashSet<>(), staleSourcePaths = new HashSet<>(), staleOutputs = new HashSet<>();
 
         for (String rootPath : rootPaths) {
-            String[] sourcePaths = getSourcePaths(rootPath, new String[]{".java"});
-            
-            @SuppressWarnings("rawtypes")
-            Map options = JavaCore.getOptions();
-            options.put(JavaCore.COMPILER_COMPLIANCE, JavaCore.VERSION_1_8);
-            options.put(JavaCore.COMPILER_CODEGEN_TARGET_PLATFORM, JavaCore.VERSION_1_8);
-            options.put(JavaCore.COMPILER_SOURCE, JavaCore.VERSION_1_8);
-            ASTParser parser = ASTParser.newParser(AST.JLS8);
-            parser.setCompilerOptions(options);
-            parser.setEnvironment(jarPaths, new String[]{}, new String[]{}, true);
-            parser.setResolveBindings(true);
-            parser.setBindingsRecovery(false);
-            
-            StatTypeFileASTRequestor r = new StatTypeFileASTRequestor(keepUnresolvables, lib);
+            split = stats.start(RunStats.Stage.SOURCE_DISCOVERY);
+            String[] sourcePaths = getSourcePaths(rootPath, new String[]{".java"}), discoveredPaths = sourcePaths;
+            stats.addItems(RunStats.Stage.SOURCE_DISCOVERY, sourcePaths.length);
+            String[] sourceRoots = new String[]{};
+            if (manifest != null) {
+                allSourcePaths.addAll(Arrays.asList(sourcePaths));
+                ArrayList<String> changed = manifest.getChangedSources(sourcePaths);
+                for (String path : changed) {
+                    staleSourcePaths.add(path);
+                    staleOutputs.addAll(manifest.getOutputs(path));
+                }
+                if (testing)
+                    System.out.println(changed.size() + " of " + sourcePaths.length + " source files changed in " + rootPath);
+                // Types declared in unchanged files are looked up through their package roots.
+                if (changed.size() < sourcePaths.length)
+                    sourceRoots = manifest.getSourceRoots();
+                sourcePaths = changed.toArray(new String[0]);
+            }
+            if (libraries != null) {
+                String[] matching = filterByPrefix(sourcePaths, libraries);
+                if (matching.length < sourcePaths.length) {
+                    numOfSkippedFiles += sourcePaths.length - matching.length;
+                    if (testing)
+                        System.out.println((sourcePaths.length - matching.length) + " of " + sourcePaths.length + " source files do not use any of the " + libraries.size() + " libraries");
+                    // Skipped files are not parsed, but their types must still resolve.
+                    if (sourceRoots.length == 0)
+                        sourceRoots = manifest != null ? manifest.getSourceRoots() : SourceHeaderScanner.getPackageRoots(Arrays.asList(discoveredPaths));
+                    if (manifest != null) {
+                        HashSet<String> skipped = new HashSet<>(Arrays.asList(sourcePaths));
+                        skipped.removeAll(Arrays.asList(matching));
+                        manifest.commit(skipped.toArray(new String[0]));
+                    }
+                    sourcePaths = matching;
+                }
+            }
+            split.stop();
+            if (sourcePaths.length == 0)
+                continue;
+            if (batchSize <= 0 || sourcePaths.length <= batchSize) {
+                numOfSequences += generateSequences(sourcePaths, jarPaths, sourceRoots, keepUnresolvables);
+                continue;
+            }
+            // Types declared in other batches are looked up through their package roots.
+            if (sourceRoots.length == 0)
+                sourceRoots = manifest != null ? manifest.getSourceRoots() : SourceHeaderScanner.getPackageRoots(Arrays.asList(sourcePaths));
+            final String[] batchSourceRoots = sourceRoots;
+            final AtomicInteger batchSequences = new AtomicInteger();
+            NotifyingBlockingThreadPoolExecutorUtil executor = new NotifyingBlockingThreadPoolExecutorUtil(numOfThreads, numOfThreads, 1, TimeUnit.MINUTES);
+            for (int i = 0; i < sourcePaths.length; i += batchSize) {
+                final String[] batch = Arrays.copyOfRange(sourcePaths, i, Math.min(i + batchSize, sourcePaths.length));
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        batchSequences.addAndGet(generateSequences(batch, jarPaths, batchSourceRoots, keepUnresolvables));
+                    }
+                });
+            }
             try {
-                parser.createASTs(sourcePaths, null, new String[0], r, null);
-            } catch (Throwable t) {
-                if (testing) {
-                    System.err.println(t.getMessage());
-                    t.printStackTrace();
+                executor.await();
+                executor.shutdown();
+                executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                executor.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+            numOfSequences += batchSequences.get();
+        }
+        split = stats.start(RunStats.Stage.SERIALIZATION);
+        try {
+            for (LibraryOutput output : outputs)
+                output.sink.close();
+            if (manifest != null) {
+                Set<String> removedSources = manifest.getRemovedSources(allSourcePaths);
+                for (String path : removedSources) {
+                    staleSourcePaths.add(path);
+                    staleOutputs.addAll(manifest.getOutputs(path));
+                }
+                for (LibraryOutput output : outputs)
+                    output.sink.remove(outputs.size() == 1 ? staleOutputs : output.getOutputs(staleOutputs), staleSourcePaths);
+                // forgotten or replaced only once their records are gone, so a failed removal is
+                // retried next run
+                for (String path : removedSources)
+                    manifest.remove(path);
+                manifest.replaceAll();
+            }
+        } catch (IOException ex) {
+            System.err.println("Cannot write the sequences of " + inPath + " to " + outPath + ": " + ex);
+        } finally {
+            if (manifest != null) {
+                try {
+                    manifest.save();
+                } catch (IOException ex) {
+                    System.err.println("Cannot save the manifest of " + outPath + ": " + ex);
                 }
             }
-            numOfSequences += r.numOfSequences;
+        }
+        split.stop();
+        for (LibraryOutput output : outputs)
+            stats.addBytesWritten(RunStats.Stage.SERIALIZATION, output.sink.getBytesWritten());
+        writeReport(numOfSequences, numOfNodes.get() - nodesBefore, System.nanoTime() - start);
+        if (testing) {
+            System.out.println("Symbol table: " + symbols);
+            System.out.println("Binding cache: " + bindingCacheHits.get() + " hits, " + bindingCacheMisses.get() + " misses");
+            System.out.print(stats);
+            System.out.println("Resolution: " + resolution);
         }
         return numOfSequences;
     }
-    
+
+    @SuppressWarnings("unchecked")
+    private void writeReport(int numOfSequences, long numOfNodes, long wallTime) {
+        JSONObject report = new JSONObject();
+        report.put("inPath", inPath);
+        report.put("outPath", outPath);
+        report.put("wallMillis", wallTime / 1000000);
+        report.put("sequences", numOfSequences);
+        report.put("nodes", numOfNodes);
+        report.put("symbols", symbols.size());
+        report.put("skippedFiles", numOfSkippedFiles);
+        report.put("classpathCached", classpathCached);
+        report.put("invalidJars", numOfInvalidJars);
+        report.put("duplicateJars", numOfDuplicateJars);
+        report.put("stages", stats.toJson());
+        report.put("resolution", resolution.toJson());
+        if (libraries != null) {
+            JSONObject libs = new JSONObject();
+            for (LibraryOutput output : outputs) {
+                JSONObject lib = new JSONObject();
+                lib.put("outPath", output.outPath);
+                lib.put("sequences", output.numOfSequences.get());
+                libs.put(output.lib, lib);
+            }
+            report.put("libraries", libs);
+        }
+        try {
+            RunStats.writeReport(outPath, report);
+        } catch (IOException ex) {
+            System.err.println("Cannot write the report of " + inPath + " to " + outPath + ": " + ex);
+        }
+    }
+
+    private int generateSequences(String[] sourcePaths, String[] jarPaths, String[] sourceRoots, boolean keepUnresolvables) {
+        RunStats.Split split = stats.start(RunStats.Stage.PARSE);
+        long bytes = 0;
+        for (String path : sourcePaths)
+            bytes += new File(path).length();
+        stats.addItems(RunStats.Stage.PARSE, sourcePaths.length);
+        stats.addBytesRead(RunStats.Stage.PARSE, bytes);
+        @SuppressWarnings("rawtypes")
+        Map options = JavaCore.getOptions();
+        options.put(JavaCore.COMPILER_COMPLIANCE, JavaCore.VERSION_1_8);
+        options.put(JavaCore.COMPILER_CODEGEN_TARGET_PLATFORM, JavaCore.VERSION_1_8);
+        options.put(JavaCore.COMPILER_SOURCE, JavaCore.VERSION_1_8);
+        ASTParser parser = ASTParser.newParser(AST.JLS8);
+        parser.setCompilerOptions(options);
+        parser.setEnvironment(jarPaths, sourceRoots, null, true);
+        parser.setResolveBindings(true);
+        parser.setBindingsRecovery(false);
+
+        StatTypeFileASTRequestor r = new StatTypeFileASTRequestor(keepUnresolvables, split);
+        try {
+            parser.createASTs(sourcePaths, null, new String[0], r, null);
+            if (manifest != null)
+                manifest.commit(sourcePaths);
+        } catch (Throwable t) {
+            if (testing) {
+                System.err.println(t.getMessage());
+                t.printStackTrace();
+            }
+        }
+        split.stop();
+        bindingCacheHits.addAndGet(r.cache.getHits());
+        bindingCacheMisses.addAndGet(r.cache.getMisses());
+        return r.numOfSequences;
+    }
+
     private class StatTypeFileASTRequestor extends FileASTRequestor {
         int numOfSequences = 0;
         private boolean keepUnresolvables;
-        private String lib;
+        // bindings are shared by all the units of one createASTs call
+        private BindingCache cache = new BindingCache(symbols);
+        // the parse split, which does not include the time spent in acceptAST
+        private RunStats.Split split;
         
-        public StatTypeFileASTRequestor(boolean keepUnresolvables, String lib) {
+        public StatTypeFileASTRequestor(boolean keepUnresolvables, RunStats.Split split) {
             this.keepUnresolvables = keepUnresolvables;
-            this.lib = lib;
+            this.split = split;
         }
 
         @Override
         public void acceptAST(String sourceFilePath, CompilationUnit ast) {
+            split.pause();
+            try {
+                processAST(sourceFilePath, ast);
+            } finally {
+                split.resume();
+            }
+        }
+
+        private void processAST(String sourceFilePath, CompilationUnit ast) {
             if (ast.getPackage() == null)
                 return;
 
-            if (lib != null) {
-                boolean hasLib = false;
-                if (ast.getPackage().getName().getFullyQualifiedName().startsWith(lib))
-                    hasLib = true;
-                if (!hasLib && ast.imports() != null) {
+            List<LibraryOutput> targets = outputs;
+            if (libraries != null) {
+                LinkedHashSet<LibraryOutput> matching = new LinkedHashSet<>();
+                libraries.collect(ast.getPackage().getName().getFullyQualifiedName(), matching);
+                if (ast.imports() != null) {
                     for (int i = 0; i < ast.imports().size(); i++) {
                         ImportDeclaration ic = (ImportDeclaration) ast.imports().get(i);
-                        if (ic.getName().getFullyQualifiedName().startsWith(lib)) {
-                            hasLib = true;
-                            break;
-                        }
+                        libraries.collect(ic.getName().getFullyQualifiedName(), matching);
                     }
                 }
-                if (!hasLib)
+                if (matching.isEmpty())
                     return;
+                targets = new ArrayList<>(matching);
             }
             if (testing)
                 System.out.println(sourceFilePath);
+            SourceFile source;
+            RunStats.Split split = stats.start(RunStats.Stage.VISIT);
+            try {
+                source = SourceFile.read(sourceFilePath);
+                stats.addBytesRead(RunStats.Stage.VISIT, new File(sourceFilePath).length());
+            } catch (IOException ex) {
+                System.out.println("Invalid input path to source file.");
+                return;
+            } finally {
+                split.stop();
+            }
+            ResolutionStats.Counts counts = new ResolutionStats.Counts();
             for (int i = 0; i < ast.types().size(); i++) {
                 if (ast.types().get(i) instanceof TypeDeclaration) {
                     TypeDeclaration td = (TypeDeclaration) ast.types().get(i);
-                    numOfSequences += generateSequence(ast, keepUnresolvables, lib, td, sourceFilePath, "");
+                    numOfSequences += generateSequence(ast, keepUnresolvables, targets, td, source, cache, counts, "");
                 }
             }
+            resolution.addFile(sourceFilePath, counts);
         }
     }
 
@@ -192,55 +583,47 @@ public class ProjectSequencesGenerator {
         }
     }
 
-    private int generateSequence(CompilationUnit ast, boolean keepUnresolvables, String lib, TypeDeclaration td, String path, String outer) {
+    private int generateSequence(CompilationUnit ast, boolean keepUnresolvables, List<LibraryOutput> targets, TypeDeclaration td, SourceFile source, BindingCache cache, ResolutionStats.Counts counts, String outer) {
         int numOfSequences = 0;
+        String path = source.getPath();
         String name = outer.isEmpty() ? td.getName().getIdentifier() : outer + "." + td.getName().getIdentifier();
         String className = td.getName().getIdentifier(), superClassName = null;
         String packageName = ast.getPackage().getName().getFullyQualifiedName();
-        String sourceCode = "";
-        try {
-            sourceCode = new String(Files.readAllBytes(Paths.get(path)));
-        } catch (IOException ex) {
-            System.out.println("Invalid input path to source file.");
-        }
-        String[] sourceCodeLines = sourceCode.lines().toArray(String[]::new);
 
         if (td.getSuperclassType() != null)
             superClassName = FQNSequenceGenerator.getUnresolvedType(td.getSuperclassType());
         for (MethodDeclaration method : td.getMethods()) {
-            int methodStartLine = ast.getLineNumber(method.getStartPosition()) - 1;
-            int methodEndLine;
-            if (sourceCodeLines[methodStartLine].contains("@")) {
-                methodEndLine = methodStartLine + (int) method.toString().lines().count() + 1;
-            } else {
-                methodEndLine = methodStartLine + (int) method.toString().lines().count();
-            }
-            List<String> methodLines = IntStream.range(0, sourceCodeLines.length)
-                                                .filter(i -> (i >= methodStartLine && i < methodEndLine))
-                                                .mapToObj(i -> sourceCodeLines[i])
-                                                .collect(Collectors.toList());
-            String methodSourceCode = String.join("\n", methodLines);
+            RunStats.Split split = stats.start(RunStats.Stage.VISIT);
+            CharSequence methodSourceCode = source.getLinesOf(method.getStartPosition(), method.getLength());
             int methodStartOffset = method.getStartPosition() - 1;
-            FQNSequenceGenerator sg = new FQNSequenceGenerator(className, superClassName, methodStartOffset);
+            FQNSequenceGenerator sg = new FQNSequenceGenerator(className, superClassName, methodStartOffset, cache, source);
             method.accept(sg);
 
-            String outputFile = buildSignature(method);
-            ArrayList<HashMap<String, String>> nodeInfo = sg.getNodeInfo();
-            // Save to file.
-            JSONObject jsonObject = new JSONObject();
-            jsonObject.put("methodSnippet", methodSourceCode);
-            jsonObject.put("nodeInfo", nodeInfo);
-
+            String signature = buildSignature(method);
+            ArrayList<NodeRecord> nodeInfo = sg.getNodeInfo();
+            counts.add(sg.getResolution());
+            resolution.addMethod(sg.getResolution());
+            split.stop();
+            stats.addItems(RunStats.Stage.VISIT, 1);
+            split = stats.start(RunStats.Stage.SERIALIZATION);
             try {
-                FileWriter outputJsonFile = new FileWriter(this.outPath + "\\" + outputFile + ".json");
-                outputJsonFile.write(jsonObject.toString());
-                outputJsonFile.close();
+                SequenceRecord record = new SequenceRecord(path, packageName + "." + name, signature, methodSourceCode, nodeInfo);
+                for (LibraryOutput target : targets) {
+                    String output = target.sink.write(record);
+                    if (manifest != null)
+                        manifest.addOutput(path, output);
+                    target.numOfSequences.incrementAndGet();
+                }
+                numOfSequences++;
+                numOfNodes.addAndGet(nodeInfo.size());
+                stats.addItems(RunStats.Stage.SERIALIZATION, 1);
             } catch (IOException ex) {
                 System.out.println("Invalid output path to node outputs.");
             }
+            split.stop();
         }
         for (TypeDeclaration inner : td.getTypes())
-            numOfSequences += generateSequence(ast, keepUnresolvables, lib, inner, path, name);
+            numOfSequences += generateSequence(ast, keepUnresolvables, targets, inner, source, cache, counts, name);
         return numOfSequences;
     }
 
@@ -269,35 +652,80 @@ public class ProjectSequencesGenerator {
         return name.substring(index);
     }
 
-    private String[] getJarPaths() {
+    private String[] getJarPaths(RunStats.Split split) {
+        File libDir = new File(inPath, "lib");
+        ClasspathManifest classpath = ClasspathManifest.load(libDir);
+        String fingerprint = ClasspathManifest.getFingerprint(new File(inPath), libDir) + "|" + versionPolicy + "|" + resolver.getFingerprint();
+        classpathCached = false;
+        numOfInvalidJars = 0;
+        numOfDuplicateJars = 0;
+        if (!forceClasspathResolution) {
+            String[] paths = classpath.getJarPaths(fingerprint);
+            if (paths != null) {
+                classpathCached = true;
+                if (testing)
+                    System.out.println("Classpath of " + inPath + " is unchanged, " + paths.length + " jars");
+                return paths;
+            }
+        }
+        long libFiles = count(libDir), libBytes = FileUtil.getSize(libDir);
         HashMap<String, File> jarFiles = new HashMap<>();
         HashSet<String> globalRepoLinks = new HashSet<>();
-        globalRepoLinks.add("http://central.maven.org/maven2/");
         HashMap<String, String> globalProperties = new HashMap<>();
         HashMap<String, String> globalManagedDependencies = new HashMap<>();
         Stack<ClassPathUtil.PomFile> parentPomFiles = new Stack<>();
-        getJarFiles(new File(inPath), jarFiles, globalRepoLinks, globalProperties, globalManagedDependencies, parentPomFiles);
-        String[] paths = new String[jarFiles.size()];
-        int i = 0;
-        for (File file : jarFiles.values())
-            paths[i++] = file.getAbsolutePath();
+        getJarFiles(new File(inPath), jarFiles, globalRepoLinks, globalProperties, globalManagedDependencies, parentPomFiles, split);
+        // the lib directory is only complete once the scheduled downloads are done
+        split.pause();
+        RunStats.Split fetch = stats.start(RunStats.Stage.DEPENDENCY_FETCH);
+        int failed = 0;
+        try {
+            failed = resolver.await(libDir.getPath());
+            if (testing && failed > 0)
+                System.out.println(failed + " dependencies of " + inPath + " could not be resolved");
+        } catch (InterruptedException e) {
+            failed = -1;
+            Thread.currentThread().interrupt();
+        }
+        fetch.stop();
+        split.resume();
+        getJarFiles(libDir, jarFiles, globalRepoLinks, globalProperties, globalManagedDependencies, parentPomFiles, split);
+        stats.addItems(RunStats.Stage.DEPENDENCY_FETCH, count(libDir) - libFiles);
+        stats.addBytesWritten(RunStats.Stage.DEPENDENCY_FETCH, FileUtil.getSize(libDir) - libBytes);
+        ClasspathBuilder builder = new ClasspathBuilder(versionPolicy);
+        String[] paths = builder.build(jarFiles.values());
+        numOfInvalidJars = builder.getNumOfInvalid();
+        numOfDuplicateJars = builder.getNumOfDuplicates();
+        if (testing && numOfInvalidJars + numOfDuplicateJars > 0)
+            System.out.println("Dropped " + numOfInvalidJars + " invalid and " + numOfDuplicateJars + " duplicate jars from the classpath of " + inPath);
+        // an incomplete classpath is not cached, so the next run tries the missing jars again
+        if (failed == 0) {
+            classpath.update(fingerprint, paths);
+            try {
+                classpath.save();
+            } catch (IOException ex) {
+                System.err.println("Cannot save the classpath of " + inPath + ": " + ex);
+            }
+        }
         return paths;
     }
 
     private void getJarFiles(File file, HashMap<String, File> jarFiles, 
             HashSet<String> globalRepoLinks, HashMap<String, String> globalProperties, HashMap<String, String> globalManagedDependencies,
-            Stack<PomFile> parentPomFiles) {
+            Stack<PomFile> parentPomFiles, RunStats.Split split) {
         if (file.isDirectory()) {
             int size = parentPomFiles.size();
             ArrayList<File> dirs = new ArrayList<>();
+            File libDir = new File(inPath, "lib");
             for (File sub : file.listFiles()) {
-                if (sub.isDirectory())
-                    dirs.add(sub);
-                else
-                    getJarFiles(sub, jarFiles, globalRepoLinks, globalProperties, globalManagedDependencies, parentPomFiles);
+                if (sub.isDirectory()) {
+                    if (!sub.equals(libDir))
+                        dirs.add(sub);
+                } else
+                    getJarFiles(sub, jarFiles, globalRepoLinks, globalProperties, globalManagedDependencies, parentPomFiles, split);
             }
             for (File dir : dirs)
-                getJarFiles(dir, jarFiles, globalRepoLinks, globalProperties, globalManagedDependencies, parentPomFiles);
+                getJarFiles(dir, jarFiles, globalRepoLinks, globalProperties, globalManagedDependencies, parentPomFiles, split);
             if (parentPomFiles.size() > size)
                 parentPomFiles.pop();
         } else if (file.getName().endsWith(".jar")) {
@@ -305,164 +733,79 @@ public class ProjectSequencesGenerator {
             if (f == null || file.lastModified() > f.lastModified())
                 jarFiles.put(file.getName(), file);
         } else if (file.getName().equals("build.gradle")) {
+            split.pause();
+            RunStats.Split fetch = stats.start(RunStats.Stage.DEPENDENCY_FETCH);
             try {
-                ClassPathUtil.getGradleDependencies(file, this.inPath + "/lib");
+                ClassPathUtil.getGradleDependencies(file, this.inPath + "/lib", resolver);
             } catch (Throwable t) {
                 t.printStackTrace();
             }
+            fetch.stop();
+            split.resume();
         } else if (file.getName().equals("pom.xml")) {
+            split.pause();
+            RunStats.Split fetch = stats.start(RunStats.Stage.DEPENDENCY_FETCH);
             try {
-                ClassPathUtil.getPomDependencies(file, this.inPath + "/lib", globalRepoLinks, globalProperties, globalManagedDependencies, parentPomFiles);
+                ClassPathUtil.getPomDependencies(file, this.inPath + "/lib", globalRepoLinks, globalProperties, globalManagedDependencies, parentPomFiles, resolver);
             } catch (Throwable t) {
                 t.printStackTrace();
             }
+            fetch.stop();
+            split.resume();
         }
     }
 
+    /**
+     * Keeps the files whose package or imports start with one of the prefixes, see
+     * SourceHeaderScanner.matches.
+     */
+    private static String[] filterByPrefix(String[] sourcePaths, PrefixTrie<?> prefixes) {
+        ArrayList<String> matching = new ArrayList<>(sourcePaths.length);
+        for (String path : sourcePaths)
+            if (SourceHeaderScanner.matches(path, prefixes))
+                matching.add(path);
+        return matching.toArray(new String[0]);
+    }
+
+    private static long count(File dir) {
+        String[] names = dir.list();
+        return names == null ? 0 : names.length;
+    }
+
     public static String buildSignature(MethodDeclaration method) {
         StringBuilder sb = new StringBuilder();
-        sb.append(method.getName().getIdentifier() + "#");
+        sb.append(method.getName().getIdentifier()).append('#');
         for (int i = 0; i < method.parameters().size(); i++) {
             SingleVariableDeclaration svd = (SingleVariableDeclaration) method.parameters().get(i);
-            sb.append(getSimpleType(svd.getType()) + "#");
+            TypeNameRenderer.appendSimpleNameOfType(sb, svd.getType());
+            sb.append('#');
         }
         return sb.toString();
     }
 
     public static String getSimpleType(VariableDeclarationFragment f) {
-        String dimensions = "";
-        for (int i = 0; i < f.getExtraDimensions(); i++)
-            dimensions += "[]";
         ASTNode p = f.getParent();
+        Type type;
         if (p instanceof FieldDeclaration)
-            return getSimpleType(((FieldDeclaration) p).getType()) + dimensions;
-        if (p instanceof VariableDeclarationStatement)
-            return getSimpleType(((VariableDeclarationStatement) p).getType()) + dimensions;
-        if (p instanceof VariableDeclarationExpression)
-            return getSimpleType(((VariableDeclarationExpression) p).getType()) + dimensions;
-        throw new UnsupportedOperationException("Get type of a declaration!!!");
+            type = ((FieldDeclaration) p).getType();
+        else if (p instanceof VariableDeclarationStatement)
+            type = ((VariableDeclarationStatement) p).getType();
+        else if (p instanceof VariableDeclarationExpression)
+            type = ((VariableDeclarationExpression) p).getType();
+        else
+            throw new UnsupportedOperationException("Get type of a declaration!!!");
+        return getSimpleType(type) + TypeNameRenderer.getDimensions(f.getExtraDimensions());
     }
 
     public static String getSimpleType(Type type) {
-        if (type.isArrayType()) {
-            ArrayType t = (ArrayType) type;
-            String pt = getSimpleType(t.getElementType());
-            for (int i = 0; i < t.getDimensions(); i++)
-                pt += "[]";
-            return pt;
-            //return type.toString();
-        } else if (type.isParameterizedType()) {
-            ParameterizedType t = (ParameterizedType) type;
-            return getSimpleType(t.getType());
-        } else if (type.isPrimitiveType()) {
-            String pt = type.toString();
-            /*if (pt.equals("byte") || pt.equals("short") || pt.equals("int") || pt.equals("long") 
-                    || pt.equals("float") || pt.equals("double"))
-                return "number";*/
-            return pt;
-        } else if (type.isQualifiedType()) {
-            QualifiedType t = (QualifiedType) type;
-            return t.getName().getIdentifier();
-        } else if (type.isSimpleType()) {
-            SimpleType st = (SimpleType) type;
-            String pt = st.getName().getFullyQualifiedName();
-            if (st.getName() instanceof QualifiedName)
-                pt = getSimpleName(st.getName());
-            if (pt.isEmpty())
-                pt = st.getName().getFullyQualifiedName();
-            /*if (pt.equals("Byte") || pt.equals("Short") || pt.equals("Integer") || pt.equals("Long") 
-                    || pt.equals("Float") || pt.equals("Double"))
-                return "number";*/
-            return pt;
-        } else if (type.isIntersectionType()) {
-            IntersectionType it = (IntersectionType) type;
-            @SuppressWarnings("unchecked")
-            ArrayList<Type> types = new ArrayList<>(it.types());
-            String s = getSimpleType(types.get(0));
-            for (int i = 1; i < types.size(); i++)
-                s += "&" + getSimpleType(types.get(i));
-            return s;
-        }  else if (type.isUnionType()) {
-            UnionType ut = (UnionType) type;
-            String s = getSimpleType((Type) ut.types().get(0));
-            for (int i = 1; i < ut.types().size(); i++)
-                s += "|" + getSimpleType((Type) ut.types().get(i));
-            return s;
-        } else if (type.isWildcardType()) {
-            WildcardType t = (WildcardType) type;
-            return getSimpleType(t.getBound());
-        } else if (type.isNameQualifiedType()) {
-            NameQualifiedType nqt = (NameQualifiedType) type;
-            return nqt.getName().getIdentifier();
-        } else if (type.isAnnotatable()) {
-            return type.toString();
-        }
-        System.err.println("ERROR: Declare a variable with unknown type!!!");
-        System.exit(0);
-        return null;
+        return TypeNameRenderer.getSimpleType(type);
     }
 
     public static String getSimpleType(Type type, HashSet<String> typeParameters) {
-        if (type.isArrayType()) {
-            ArrayType t = (ArrayType) type;
-            String pt = getSimpleType(t.getElementType(), typeParameters);
-            for (int i = 0; i < t.getDimensions(); i++)
-                pt += "[]";
-            return pt;
-            //return type.toString();
-        } else if (type.isParameterizedType()) {
-            ParameterizedType t = (ParameterizedType) type;
-            return getSimpleType(t.getType(), typeParameters);
-        } else if (type.isPrimitiveType()) {
-            return type.toString();
-        } else if (type.isQualifiedType()) {
-            QualifiedType t = (QualifiedType) type;
-            return t.getName().getIdentifier();
-        } else if (type.isSimpleType()) {
-            if (typeParameters.contains(type.toString()))
-                return "Object";
-            return type.toString();
-        } else if (type.isIntersectionType()) {
-            IntersectionType it = (IntersectionType) type;
-            @SuppressWarnings("unchecked")
-            ArrayList<Type> types = new ArrayList<>(it.types());
-            String s = getSimpleType(types.get(0), typeParameters);
-            for (int i = 1; i < types.size(); i++)
-                s += "&" + getSimpleType(types.get(i), typeParameters);
-            return s;
-        } else if (type.isUnionType()) {
-            UnionType ut = (UnionType) type;
-            String s = getSimpleType((Type) ut.types().get(0), typeParameters);
-            for (int i = 1; i < ut.types().size(); i++)
-                s += "|" + getSimpleType((Type) ut.types().get(i), typeParameters);
-            return s;
-        } else if (type.isWildcardType()) {
-            WildcardType t = (WildcardType) type;
-            return getSimpleType(t.getBound(), typeParameters);
-        } else if (type.isNameQualifiedType()) {
-            NameQualifiedType nqt = (NameQualifiedType) type;
-            return nqt.getName().getIdentifier();
-        } else if (type.isAnnotatable()) {
-            return type.toString();
-        }
-        System.err.println("ERROR: Declare a variable with unknown type!!!");
-        System.exit(0);
-        return null;
+        return TypeNameRenderer.getSimpleType(type, typeParameters);
     }
 
     public static String getSimpleName(Name name) {
-        if (name.isSimpleName()) {
-            SimpleName sn = (SimpleName) name;
-            if (Character.isUpperCase(sn.getIdentifier().charAt(0)))
-                return sn.getIdentifier();
-            return "";
-        }
-        QualifiedName qn = (QualifiedName) name;
-        if (Character.isUpperCase(qn.getFullyQualifiedName().charAt(0)))
-            return qn.getFullyQualifiedName();
-        String sqn = getSimpleName(qn.getQualifier());
-        if (sqn.isEmpty())
-            return getSimpleName(qn.getName());
-        return sqn + "." + qn.getName().getIdentifier();
+        return TypeNameRenderer.getSimpleName(name);
     }
 }
@@ -0,0 +1,219 @@
+package fqntypeparser;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.eclipse.jdt.core.dom.ASTNode;
+import org.json.simple.JSONObject;
+
+/**
+ * Binding-resolution coverage of a corpus: how many of the expressions, types and constructor
+ * invocations FQNSequenceGenerator visited had a binding, in total and by AST node kind, with
+ * histograms of the per-method and per-file resolution rates and the files with the lowest
+ * rates. Methods and files can be added from several threads.
+ */
+public class ResolutionStats {
+    public static final int NUM_OF_BUCKETS = 10, NUM_OF_LOWEST_FILES = 20;
+    // larger than the highest ASTNode node type
+    static final int NUM_OF_KINDS = 128;
+
+    /**
+     * Counts of one method or file, by ASTNode node type. Not thread-safe.
+     */
+    public static class Counts {
+        private final int[] total = new int[NUM_OF_KINDS], resolved = new int[NUM_OF_KINDS];
+        private int numOfTotal = 0, numOfResolved = 0;
+
+        public void add(int nodeType, boolean isResolved) {
+            total[nodeType]++;
+            numOfTotal++;
+            if (isResolved) {
+                resolved[nodeType]++;
+                numOfResolved++;
+            }
+        }
+
+        public void add(Counts counts) {
+            for (int i = 0; i < NUM_OF_KINDS; i++) {
+                total[i] += counts.total[i];
+                resolved[i] += counts.resolved[i];
+            }
+            numOfTotal += counts.numOfTotal;
+            numOfResolved += counts.numOfResolved;
+        }
+
+        public int getTotal() {
+            return numOfTotal;
+        }
+
+        public int getResolved() {
+            return numOfResolved;
+        }
+
+        public int getTotal(int nodeType) {
+            return total[nodeType];
+        }
+
+        public int getResolved(int nodeType) {
+            return resolved[nodeType];
+        }
+
+        /**
+         * The share of resolved nodes, or 1 if there are none.
+         */
+        public double getRate() {
+            return numOfTotal == 0 ? 1 : (double) numOfResolved / numOfTotal;
+        }
+    }
+
+    private static class FileRate {
+        private final String path;
+        private final int total, resolved;
+
+        private FileRate(String path, Counts counts) {
+            this.path = path;
+            this.total = counts.getTotal();
+            this.resolved = counts.getResolved();
+        }
+
+        private double getRate() {
+            return (double) resolved / total;
+        }
+    }
+
+    private static final Comparator<FileRate> BY_RATE_DESCENDING = new Comparator<FileRate>() {
+        @Override
+        public int compare(FileRate a, FileRate b) {
+            return Double.compare(b.getRate(), a.getRate());
+        }
+    };
+
+    private final LongAdder[] total = newAdders(NUM_OF_KINDS), resolved = newAdders(NUM_OF_KINDS);
+    private final LongAdder[] methodHistogram = newAdders(NUM_OF_BUCKETS), fileHistogram = newAdders(NUM_OF_BUCKETS);
+    private final LongAdder numOfMethods = new LongAdder(), numOfFiles = new LongAdder();
+    // max-heap on the rate, so that the best of the lowest files is evicted first
+    private final PriorityQueue<FileRate> lowestFiles = new PriorityQueue<>(NUM_OF_LOWEST_FILES + 1, BY_RATE_DESCENDING);
+
+    private static LongAdder[] newAdders(int n) {
+        LongAdder[] adders = new LongAdder[n];
+        for (int i = 0; i < n; i++)
+            adders[i] = new LongAdder();
+        return adders;
+    }
+
+    private static int getBucket(double rate) {
+        return Math.min((int) (rate * NUM_OF_BUCKETS), NUM_OF_BUCKETS - 1);
+    }
+
+    /**
+     * Adds the counts of a visited method to the per-method histogram. Methods without any
+     * counted node are left out of it.
+     */
+    public void addMethod(Counts counts) {
+        numOfMethods.increment();
+        if (counts.getTotal() > 0)
+            methodHistogram[getBucket(counts.getRate())].increment();
+    }
+
+    /**
+     * Adds the counts of all the methods of a file to the totals and the per-file histogram.
+     */
+    public void addFile(String path, Counts counts) {
+        numOfFiles.increment();
+        for (int i = 0; i < NUM_OF_KINDS; i++) {
+            if (counts.total[i] == 0)
+                continue;
+            total[i].add(counts.total[i]);
+            resolved[i].add(counts.resolved[i]);
+        }
+        if (counts.getTotal() == 0)
+            return;
+        fileHistogram[getBucket(counts.getRate())].increment();
+        synchronized (lowestFiles) {
+            lowestFiles.add(new FileRate(path, counts));
+            if (lowestFiles.size() > NUM_OF_LOWEST_FILES)
+                lowestFiles.poll();
+        }
+    }
+
+    public long getTotal() {
+        long n = 0;
+        for (LongAdder adder : total)
+            n += adder.sum();
+        return n;
+    }
+
+    public long getResolved() {
+        long n = 0;
+        for (LongAdder adder : resolved)
+            n += adder.sum();
+        return n;
+    }
+
+    public double getRate() {
+        long n = getTotal();
+        return n == 0 ? 1 : (double) getResolved() / n;
+    }
+
+    // A List is written as a JSON array, so the JSONObjects can hold it without JSONArray's raw type.
+    private static List<Long> toJson(LongAdder[] histogram) {
+        ArrayList<Long> js = new ArrayList<>(histogram.length);
+        for (LongAdder bucket : histogram)
+            js.add(bucket.sum());
+        return js;
+    }
+
+    /**
+     * Returns the statistics as a JSON object. Histogram bucket i counts the methods or files
+     * with a rate in [i / 10, (i + 1) / 10), the last bucket includes 1.
+     */
+    @SuppressWarnings("unchecked")
+    public JSONObject toJson() {
+        JSONObject js = new JSONObject();
+        js.put("total", getTotal());
+        js.put("resolved", getResolved());
+        js.put("rate", getRate());
+        js.put("methods", numOfMethods.sum());
+        js.put("files", numOfFiles.sum());
+        JSONObject byKind = new JSONObject();
+        for (int i = 0; i < NUM_OF_KINDS; i++) {
+            long n = total[i].sum();
+            if (n == 0)
+                continue;
+            JSONObject kind = new JSONObject();
+            kind.put("total", n);
+            kind.put("resolved", resolved[i].sum());
+            kind.put("rate", (double) resolved[i].sum() / n);
+            byKind.put(ASTNode.nodeClassForType(i).getSimpleName(), kind);
+        }
+        js.put("byKind", byKind);
+        js.put("methodHistogram", toJson(methodHistogram));
+        js.put("fileHistogram", toJson(fileHistogram));
+        ArrayList<FileRate> files;
+        synchronized (lowestFiles) {
+            files = new ArrayList<>(lowestFiles);
+        }
+        Collections.sort(files, Collections.reverseOrder(BY_RATE_DESCENDING));
+        ArrayList<JSONObject> lowest = new ArrayList<>(files.size());
+        for (FileRate file : files) {
+            JSONObject f = new JSONObject();
+            f.put("path", file.path);
+            f.put("total", file.total);
+            f.put("resolved", file.resolved);
+            f.put("rate", file.getRate());
+            lowest.add(f);
+        }
+        js.put("lowestFiles", lowest);
+        return js;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d of %d resolved (%.1f%%) in %d methods of %d files", getResolved(), getTotal(), 100 * getRate(),
+                numOfMethods.sum(), numOfFiles.sum());
+    }
+}
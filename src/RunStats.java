@@ -0,0 +1,164 @@
+package fqntypeparser;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.json.simple.JSONObject;
+
+/**
+ * Wall time, CPU time, bytes and item counts of the stages of a corpus run. Stages can be timed
+ * from several threads at once. A stage measured inside another one (visiting inside parsing,
+ * dependency fetching inside jar discovery) is paused out of the outer one, so the stage times
+ * of a thread add up to its total.
+ */
+public class RunStats {
+    public static final String REPORT_FILE = "run-report.json";
+
+    public enum Stage {
+        JAR_DISCOVERY("jarDiscovery"),
+        DEPENDENCY_FETCH("dependencyFetch"),
+        SOURCE_DISCOVERY("sourceDiscovery"),
+        PARSE("parse"),
+        VISIT("visit"),
+        SERIALIZATION("serialization");
+
+        private final String key;
+
+        Stage(String key) {
+            this.key = key;
+        }
+
+        public String getKey() {
+            return key;
+        }
+    }
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+    private static final boolean CPU_TIME = THREADS.isCurrentThreadCpuTimeSupported();
+
+    private final LongAdder[] wall = newAdders(), cpu = newAdders(), bytesRead = newAdders(), bytesWritten = newAdders(), items = newAdders();
+
+    private static LongAdder[] newAdders() {
+        LongAdder[] adders = new LongAdder[Stage.values().length];
+        for (int i = 0; i < adders.length; i++)
+            adders[i] = new LongAdder();
+        return adders;
+    }
+
+    private static long cpuTime() {
+        return CPU_TIME ? THREADS.getCurrentThreadCpuTime() : 0;
+    }
+
+    /**
+     * One measurement of a stage, taken on a single thread. It runs from start until stop, less
+     * the intervals between pause and resume.
+     */
+    public class Split {
+        private final Stage stage;
+        private long wallStart, cpuStart, wallTime = 0, cpuTime = 0;
+        private boolean running = false;
+
+        private Split(Stage stage) {
+            this.stage = stage;
+        }
+
+        public void pause() {
+            if (!running)
+                return;
+            wallTime += System.nanoTime() - wallStart;
+            cpuTime += cpuTime() - cpuStart;
+            running = false;
+        }
+
+        public void resume() {
+            if (running)
+                return;
+            wallStart = System.nanoTime();
+            cpuStart = cpuTime();
+            running = true;
+        }
+
+        public void stop() {
+            pause();
+            wall[stage.ordinal()].add(wallTime);
+            cpu[stage.ordinal()].add(cpuTime);
+            wallTime = cpuTime = 0;
+        }
+    }
+
+    public Split start(Stage stage) {
+        Split split = new Split(stage);
+        split.resume();
+        return split;
+    }
+
+    public void addItems(Stage stage, long n) {
+        items[stage.ordinal()].add(n);
+    }
+
+    public void addBytesRead(Stage stage, long n) {
+        bytesRead[stage.ordinal()].add(n);
+    }
+
+    public void addBytesWritten(Stage stage, long n) {
+        bytesWritten[stage.ordinal()].add(n);
+    }
+
+    public long getWallTime(Stage stage) {
+        return wall[stage.ordinal()].sum();
+    }
+
+    public long getCpuTime(Stage stage) {
+        return cpu[stage.ordinal()].sum();
+    }
+
+    public long getBytesRead(Stage stage) {
+        return bytesRead[stage.ordinal()].sum();
+    }
+
+    public long getBytesWritten(Stage stage) {
+        return bytesWritten[stage.ordinal()].sum();
+    }
+
+    public long getItems(Stage stage) {
+        return items[stage.ordinal()].sum();
+    }
+
+    /**
+     * Returns the stages as a JSON object keyed by stage, times in milliseconds.
+     */
+    @SuppressWarnings("unchecked")
+    public JSONObject toJson() {
+        JSONObject stages = new JSONObject();
+        for (Stage stage : Stage.values()) {
+            JSONObject js = new JSONObject();
+            js.put("wallMillis", getWallTime(stage) / 1000000);
+            js.put("cpuMillis", getCpuTime(stage) / 1000000);
+            js.put("bytesRead", getBytesRead(stage));
+            js.put("bytesWritten", getBytesWritten(stage));
+            js.put("items", getItems(stage));
+            stages.put(stage.getKey(), js);
+        }
+        return stages;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (Stage stage : Stage.values())
+            sb.append(String.format("%-16s %9d ms wall %9d ms cpu %12d B read %12d B written %9d items%n", stage.getKey(),
+                    getWallTime(stage) / 1000000, getCpuTime(stage) / 1000000, getBytesRead(stage), getBytesWritten(stage), getItems(stage)));
+        return sb.toString();
+    }
+
+    /**
+     * Writes the report of a corpus run into its output directory, replacing the previous one
+     * atomically (see FileUtil.writeAtomically).
+     */
+    public static void writeReport(String outPath, JSONObject report) throws IOException {
+        FileUtil.writeAtomically(new File(outPath, REPORT_FILE), report.toJSONString());
+    }
+}
@@ -0,0 +1,113 @@
+package fqntypeparser;
+
+import java.util.List;
+
+/**
+ * The output of one method: where it was declared, its snippet and the type information of
+ * its nodes.
+ */
+public class SequenceRecord {
+    private String path, typeName, signature;
+    private CharSequence methodSnippet;
+    private List<NodeRecord> nodeInfo;
+
+    public SequenceRecord(String path, String typeName, String signature, CharSequence methodSnippet, List<NodeRecord> nodeInfo) {
+        this.path = path;
+        this.typeName = typeName;
+        this.signature = signature;
+        this.methodSnippet = methodSnippet;
+        this.nodeInfo = nodeInfo;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public String getTypeName() {
+        return typeName;
+    }
+
+    public String getSignature() {
+        return signature;
+    }
+
+    public CharSequence getMethodSnippet() {
+        return methodSnippet;
+    }
+
+    public List<NodeRecord> getNodeInfo() {
+        return nodeInfo;
+    }
+
+    /**
+     * Appends the record as a single line of JSON. The path comes first so that a shard can be
+     * filtered by source file without parsing its lines.
+     */
+    public void appendJson(StringBuilder sb) {
+        sb.append("{\"path\":");
+        appendString(sb, path);
+        sb.append(",\"type\":");
+        appendString(sb, typeName);
+        sb.append(",\"signature\":");
+        appendString(sb, signature);
+        sb.append(",\"methodSnippet\":");
+        appendString(sb, methodSnippet);
+        sb.append(",\"nodeInfo\":[");
+        for (int i = 0; i < nodeInfo.size(); i++) {
+            if (i > 0)
+                sb.append(',');
+            nodeInfo.get(i).appendJson(sb);
+        }
+        sb.append("]}");
+    }
+
+    public static String getJsonPrefix(String path) {
+        StringBuilder sb = new StringBuilder("{\"path\":");
+        appendString(sb, path);
+        return sb.append(',').toString();
+    }
+
+    public static void appendString(StringBuilder sb, CharSequence s) {
+        if (s == null) {
+            sb.append("null");
+            return;
+        }
+        sb.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char ch = s.charAt(i);
+            switch (ch) {
+            case '"':
+                sb.append("\\\"");
+                break;
+            case '\\':
+                sb.append("\\\\");
+                break;
+            case '\n':
+                sb.append("\\n");
+                break;
+            case '\r':
+                sb.append("\\r");
+                break;
+            case '\t':
+                sb.append("\\t");
+                break;
+            case '\b':
+                sb.append("\\b");
+                break;
+            case '\f':
+                sb.append("\\f");
+                break;
+            default:
+                if (ch < 0x20 || (ch >= '\u007f' && ch <= '\u009f') || (ch >= '\u2000' && ch <= '\u20ff')) {
+                    String hex = Integer.toHexString(ch);
+                    sb.append("\\u");
+                    for (int k = hex.length(); k < 4; k++)
+                        sb.append('0');
+                    sb.append(hex.toUpperCase());
+                } else
+                    sb.append(ch);
+            }
+        }
+        sb.append('"');
+    }
+}
@@ -0,0 +1,34 @@
+package fqntypeparser;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Set;
+
+/**
+ * Destination of the method records of a run. Implementations are shared by all the batches of
+ * a corpus and must accept writes from several threads.
+ */
+public interface SequenceSink extends Closeable {
+
+    /**
+     * Writes the record and returns the path of the output that now holds it.
+     */
+    String write(SequenceRecord record) throws IOException;
+
+    /**
+     * Drops every record of the given source files from the given outputs, which were returned
+     * by write in an earlier run.
+     */
+    void remove(Set<String> outputs, Set<String> sourcePaths) throws IOException;
+
+    /**
+     * Deletes the outputs earlier runs left in the sink's directory, in any format. Must be
+     * called before the first write.
+     */
+    void clear() throws IOException;
+
+    /**
+     * The number of bytes written by write so far.
+     */
+    long getBytesWritten();
+}
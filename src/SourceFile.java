@@ -0,0 +1,124 @@
+package fqntypeparser;
+
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+/**
+ * The decoded content of one source file together with its line offset table. It is built once
+ * per compilation unit and shared by every type and method declared in it.
+ */
+public class SourceFile {
+    private final String path;
+    private final String content;
+    private int[] lineStarts, lineEnds;
+    private int numOfLines = 0;
+    private boolean hasCarriageReturns = false;
+
+    public SourceFile(String path, String content) {
+        this.path = path;
+        this.content = content;
+        computeLines();
+    }
+
+    public static SourceFile read(String path) throws IOException {
+        return new SourceFile(path, new String(Files.readAllBytes(Paths.get(path))));
+    }
+
+    /**
+     * Splits the content on \n, \r and \r\n the same way String.lines() does: a trailing line
+     * terminator does not start an extra empty line.
+     */
+    private void computeLines() {
+        int capacity = 16;
+        lineStarts = new int[capacity];
+        lineEnds = new int[capacity];
+        int length = content.length(), start = 0, i = 0;
+        while (i < length) {
+            char ch = content.charAt(i);
+            if (ch == '\n' || ch == '\r') {
+                if (ch == '\r')
+                    hasCarriageReturns = true;
+                addLine(start, i);
+                if (ch == '\r' && i + 1 < length && content.charAt(i + 1) == '\n')
+                    i++;
+                start = i + 1;
+            }
+            i++;
+        }
+        if (start < length)
+            addLine(start, length);
+    }
+
+    private void addLine(int start, int end) {
+        if (numOfLines == lineStarts.length) {
+            int[] starts = new int[numOfLines * 2], ends = new int[numOfLines * 2];
+            System.arraycopy(lineStarts, 0, starts, 0, numOfLines);
+            System.arraycopy(lineEnds, 0, ends, 0, numOfLines);
+            lineStarts = starts;
+            lineEnds = ends;
+        }
+        lineStarts[numOfLines] = start;
+        lineEnds[numOfLines] = end;
+        numOfLines++;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public String getContent() {
+        return content;
+    }
+
+    public int getNumOfLines() {
+        return numOfLines;
+    }
+
+    public String getLine(int line) {
+        return content.substring(lineStarts[line], lineEnds[line]);
+    }
+
+    /**
+     * Returns the zero-based line containing the given character offset.
+     */
+    public int getLineOf(int offset) {
+        int low = 0, high = numOfLines - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (lineStarts[mid] <= offset)
+                low = mid;
+            else
+                high = mid - 1;
+        }
+        return low;
+    }
+
+    /**
+     * Returns a view, without copying, of the content in [start, end).
+     */
+    public CharSequence subSequence(int start, int end) {
+        return CharBuffer.wrap(content, start, end);
+    }
+
+    /**
+     * Returns the whole lines covering the node range [start, start + length), joined with \n
+     * and without a final line terminator. It is a view of the content unless the file has \r
+     * line terminators, which are replaced in a copy.
+     */
+    public CharSequence getLinesOf(int start, int length) {
+        if (numOfLines == 0)
+            return "";
+        int from = getLineOf(start), to = getLineOf(Math.max(start, start + length - 1));
+        if (!hasCarriageReturns)
+            return subSequence(lineStarts[from], lineEnds[to]);
+        StringBuilder sb = new StringBuilder(lineEnds[to] - lineStarts[from]);
+        for (int line = from; line <= to; line++) {
+            if (line > from)
+                sb.append('\n');
+            sb.append(content, lineStarts[line], lineEnds[line]);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,215 @@
+package fqntypeparser;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Collection;
+import java.util.HashSet;
+
+/**
+ * Lexical scanner for the header of a Java source file. It only skips whitespace and comments
+ * and reads the package and import declarations, so it is much cheaper than running the parser.
+ */
+public class SourceHeaderScanner {
+    private Reader reader;
+    private int ch = -2;
+
+    private SourceHeaderScanner(Reader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * Returns the declared package of the file, the empty string for the default package,
+     * or null if the file cannot be read.
+     */
+    public static String readPackage(String path) {
+        try (Reader reader = new BufferedReader(new FileReader(path), 2048)) {
+            SourceHeaderScanner sc = new SourceHeaderScanner(reader);
+            // package annotations only appear in package-info.java
+            String token = sc.skipAnnotations(sc.nextToken());
+            if (!"package".equals(token))
+                return "";
+            return sc.readQualifiedName();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Returns whether the declared package or one of the imports of the file starts with one
+     * of the prefixes, the same test StatTypeFileASTRequestor applies to the parsed file. Files
+     * without a package declaration never match, files that cannot be read always do.
+     */
+    public static boolean matches(String path, PrefixTrie<?> prefixes) {
+        try (Reader reader = new BufferedReader(new FileReader(path), 2048)) {
+            SourceHeaderScanner sc = new SourceHeaderScanner(reader);
+            String token = sc.skipAnnotations(sc.nextToken());
+            if (!"package".equals(token))
+                return false;
+            if (prefixes.matches(sc.readQualifiedName()))
+                return true;
+            token = sc.nextToken();
+            while (token != null && (token.equals("import") || token.equals(";"))) {
+                if (token.equals("import")) {
+                    token = sc.nextToken();
+                    if ("static".equals(token))
+                        token = sc.nextToken();
+                    String name = sc.readQualifiedName(token);
+                    // ImportDeclaration.getName() leaves out the .* of on-demand imports
+                    if (name.endsWith(".*"))
+                        name = name.substring(0, name.length() - 2);
+                    if (prefixes.matches(name))
+                        return true;
+                }
+                token = sc.nextToken();
+            }
+            return false;
+        } catch (IOException e) {
+            return true;
+        }
+    }
+
+    /**
+     * Returns the package root directory of the file, i.e. its parent directory with the
+     * package path stripped off, or null if the layout does not match the package.
+     */
+    public static String getPackageRoot(String path) {
+        String packageName = readPackage(path);
+        if (packageName == null)
+            return null;
+        String dir = new File(path).getParentFile().getAbsolutePath();
+        if (packageName.isEmpty())
+            return dir;
+        String suffix = File.separatorChar + packageName.replace('.', File.separatorChar);
+        if (!dir.endsWith(suffix))
+            return null;
+        return dir.substring(0, dir.length() - suffix.length());
+    }
+
+    public static String[] getPackageRoots(Collection<String> paths) {
+        HashSet<String> roots = new HashSet<>();
+        for (String path : paths) {
+            String root = getPackageRoot(path);
+            if (root != null)
+                roots.add(root);
+        }
+        return roots.toArray(new String[0]);
+    }
+
+    // Skips annotations starting at token, e.g. @Deprecated, @a.b.Foo or @Generated(value = "x"),
+    // and returns the token after them.
+    private String skipAnnotations(String token) throws IOException {
+        while ("@".equals(token)) {
+            nextToken();
+            token = nextToken();
+            while (".".equals(token)) {
+                nextToken();
+                token = nextToken();
+            }
+            if ("(".equals(token)) {
+                skipArguments();
+                token = nextToken();
+            }
+        }
+        return token;
+    }
+
+    // Skips up to the ) closing an annotation's (, past nested parentheses and literals.
+    private void skipArguments() throws IOException {
+        int depth = 1;
+        while (depth > 0) {
+            String token = nextToken();
+            if (token == null)
+                return;
+            if (token.equals("("))
+                depth++;
+            else if (token.equals(")"))
+                depth--;
+            else if (token.equals("\"") || token.equals("'"))
+                skipLiteral(token.charAt(0));
+        }
+    }
+
+    private void skipLiteral(char quote) throws IOException {
+        int c = read();
+        while (c != -1 && c != quote) {
+            if (c == '\\')
+                read();
+            c = read();
+        }
+    }
+
+    String readQualifiedName() throws IOException {
+        return readQualifiedName(nextToken());
+    }
+
+    private String readQualifiedName(String token) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        while (token != null && !token.equals(";")) {
+            sb.append(token);
+            token = nextToken();
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Returns the next identifier or single punctuation character, skipping whitespace and
+     * comments, or null at the end of the input.
+     */
+    String nextToken() throws IOException {
+        int c = skipBlanks();
+        if (c == -1)
+            return null;
+        if (Character.isJavaIdentifierStart(c)) {
+            StringBuilder sb = new StringBuilder();
+            while (c != -1 && Character.isJavaIdentifierPart(c)) {
+                sb.append((char) c);
+                c = read();
+            }
+            ch = c;
+            return sb.toString();
+        }
+        return String.valueOf((char) c);
+    }
+
+    private int skipBlanks() throws IOException {
+        int c = read();
+        while (true) {
+            if (c == -1)
+                return -1;
+            if (Character.isWhitespace(c)) {
+                c = read();
+            } else if (c == '/') {
+                int n = read();
+                if (n == '/') {
+                    do {
+                        c = read();
+                    } while (c != -1 && c != '\n' && c != '\r');
+                } else if (n == '*') {
+                    int prev = 0;
+                    c = read();
+                    while (c != -1 && !(prev == '*' && c == '/')) {
+                        prev = c;
+                        c = read();
+                    }
+                    c = read();
+                } else {
+                    ch = n;
+                    return '/';
+                }
+            } else
+                return c;
+        }
+    }
+
+    private int read() throws IOException {
+        if (ch != -2) {
+            int c = ch;
+            ch = -2;
+            return c;
+        }
+        return reader.read();
+    }
+}
@@ -0,0 +1,233 @@
+package fqntypeparser;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
+
+/**
+ * Persisted record of the source files a previous run has processed: their content hash, the
+ * classpath they were resolved against and the outputs they produced. It lets a rerun parse
+ * only new or changed files and drop the outputs of removed ones.
+ */
+public class SourceManifest {
+    public static final String FILE_NAME = ".manifest.json";
+
+    private File file;
+    private String classpathFingerprint = "";
+    private ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private ConcurrentHashMap<String, Entry> pending = new ConcurrentHashMap<>();
+    // processed sources whose old entry still lists records that are not removed yet
+    private ConcurrentHashMap<String, Entry> replacing = new ConcurrentHashMap<>();
+
+    private static class Entry {
+        private String hash, root;
+        private long size, modified;
+        private Set<String> outputs = ConcurrentHashMap.newKeySet();
+    }
+
+    private SourceManifest(File file) {
+        this.file = file;
+    }
+
+    public static SourceManifest load(String outPath) {
+        SourceManifest manifest = new SourceManifest(new File(outPath, FILE_NAME));
+        if (!manifest.file.exists())
+            return manifest;
+        try (Reader reader = new InputStreamReader(new FileInputStream(manifest.file), StandardCharsets.UTF_8)) {
+            JSONObject json = (JSONObject) new JSONParser().parse(reader);
+            manifest.classpathFingerprint = (String) json.get("classpath");
+            JSONObject sources = (JSONObject) json.get("sources");
+            for (Object key : sources.keySet()) {
+                JSONObject js = (JSONObject) sources.get(key);
+                Entry e = new Entry();
+                e.hash = (String) js.get("hash");
+                e.root = (String) js.get("root");
+                e.size = ((Number) js.get("size")).longValue();
+                e.modified = ((Number) js.get("modified")).longValue();
+                for (Object output : (JSONArray) js.get("outputs"))
+                    e.outputs.add((String) output);
+                manifest.entries.put((String) key, e);
+            }
+        } catch (IOException | ParseException | RuntimeException e) {
+            System.err.println("Ignoring unreadable manifest " + manifest.file + ": " + e);
+            manifest.entries.clear();
+        }
+        return manifest;
+    }
+
+    /**
+     * Writes the manifest to a temporary file that then atomically replaces the previous one,
+     * so a crash leaves either the old or the new manifest behind. A processed source that has
+     * not replaced its old entry keeps that entry, now also listing the new outputs and marked
+     * as changed, so the next run drops the records of both and parses the source again.
+     */
+    @SuppressWarnings("unchecked")
+    public void save() throws IOException {
+        for (Map.Entry<String, Entry> me : replacing.entrySet()) {
+            Entry old = entries.get(me.getKey());
+            if (old != null) {
+                old.outputs.addAll(me.getValue().outputs);
+                old.hash = null;
+            }
+        }
+        replacing.clear();
+        JSONObject sources = new JSONObject();
+        for (Map.Entry<String, Entry> me : entries.entrySet()) {
+            Entry e = me.getValue();
+            JSONObject js = new JSONObject();
+            js.put("hash", e.hash);
+            js.put("root", e.root);
+            js.put("size", e.size);
+            js.put("modified", e.modified);
+            JSONArray outputs = new JSONArray();
+            outputs.addAll(e.outputs);
+            js.put("outputs", outputs);
+            sources.put(me.getKey(), js);
+        }
+        JSONObject json = new JSONObject();
+        json.put("classpath", classpathFingerprint);
+        json.put("sources", sources);
+        FileUtil.writeAtomically(file, json.toJSONString());
+    }
+
+    public static String getClasspathFingerprint(String[] jarPaths) {
+        String[] paths = jarPaths.clone();
+        Arrays.sort(paths);
+        StringBuilder sb = new StringBuilder();
+        for (String path : paths) {
+            File jar = new File(path);
+            sb.append(path).append('|').append(jar.length()).append('|').append(jar.lastModified()).append('\n');
+        }
+        return FileUtil.getHash(sb.toString().getBytes());
+    }
+
+    /**
+     * Records the classpath of this run. If it differs from the one the manifest was built
+     * with, every known source is considered changed.
+     */
+    public void setClasspathFingerprint(String fingerprint) {
+        if (!fingerprint.equals(classpathFingerprint)) {
+            for (Entry e : entries.values())
+                e.hash = null;
+            classpathFingerprint = fingerprint;
+        }
+    }
+
+    /**
+     * Returns the paths that are new or whose content changed since the last run. Size and
+     * modification time are checked first so unchanged files are not hashed.
+     */
+    public ArrayList<String> getChangedSources(String[] paths) {
+        ArrayList<String> changed = new ArrayList<>();
+        for (String path : paths) {
+            File source = new File(path);
+            Entry old = entries.get(path);
+            if (old != null && old.hash != null && old.size == source.length() && old.modified == source.lastModified())
+                continue;
+            Entry e = new Entry();
+            e.hash = FileUtil.getFileHash(path);
+            e.size = source.length();
+            e.modified = source.lastModified();
+            if (old != null && old.hash != null && old.hash.equals(e.hash)) {
+                old.size = e.size;
+                old.modified = e.modified;
+                continue;
+            }
+            e.root = SourceHeaderScanner.getPackageRoot(path);
+            pending.put(path, e);
+            changed.add(path);
+        }
+        return changed;
+    }
+
+    public Set<String> getRemovedSources(Collection<String> paths) {
+        HashSet<String> removed = new HashSet<>(entries.keySet());
+        removed.removeAll(paths);
+        return removed;
+    }
+
+    /**
+     * Returns the outputs the source produced, empty if it is not known.
+     */
+    public Set<String> getOutputs(String path) {
+        Entry e = entries.get(path);
+        if (e == null)
+            return new HashSet<>();
+        return e.outputs;
+    }
+
+    /**
+     * Forgets the source and returns the outputs it produced, so that the caller can delete them.
+     */
+    public Set<String> remove(String path) {
+        Entry e = entries.remove(path);
+        if (e == null)
+            return new HashSet<>();
+        return e.outputs;
+    }
+
+    public void addOutput(String path, String output) {
+        Entry e = pending.get(path);
+        if (e != null)
+            e.outputs.add(output);
+    }
+
+    /**
+     * Marks the given pending sources as processed. A source already known from an earlier run
+     * only takes the place of its old entry on replaceAll, once its old records are removed.
+     */
+    public void commit(String[] paths) {
+        for (String path : paths) {
+            Entry e = pending.remove(path);
+            if (e == null)
+                continue;
+            if (entries.containsKey(path))
+                replacing.put(path, e);
+            else
+                entries.put(path, e);
+        }
+    }
+
+    /**
+     * Lets the processed sources replace their old entries. To be called after the records
+     * listed by the old entries have been removed.
+     */
+    public void replaceAll() {
+        entries.putAll(replacing);
+        replacing.clear();
+    }
+
+    /**
+     * Returns the package roots of the sources known to the manifest, which let a partial batch
+     * resolve the types declared in unchanged files.
+     */
+    public String[] getSourceRoots() {
+        HashSet<String> roots = new HashSet<>();
+        for (Entry e : entries.values())
+            if (e.root != null)
+                roots.add(e.root);
+        for (Entry e : pending.values())
+            if (e.root != null)
+                roots.add(e.root);
+        return roots.toArray(new String[0]);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+}
@@ -0,0 +1,85 @@
+package fqntypeparser;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Concurrent interning table for the type names and signatures written to the output. Each
+ * distinct string is mapped to one canonical instance and a stable id, assigned in order of
+ * first occurrence. One table can be shared by all the corpora of a run.
+ */
+public class SymbolTable {
+    private final ConcurrentHashMap<String, Symbol> symbols = new ConcurrentHashMap<>(1 << 12);
+    private final AtomicInteger nextId = new AtomicInteger();
+    private final LongAdder lookups = new LongAdder(), misses = new LongAdder();
+    private final Function<String, Symbol> newSymbol = new Function<String, Symbol>() {
+        @Override
+        public Symbol apply(String value) {
+            misses.increment();
+            return new Symbol(value, nextId.getAndIncrement());
+        }
+    };
+
+    public static final class Symbol {
+        private final String value;
+        private final int id;
+
+        private Symbol(String value, int id) {
+            this.value = value;
+            this.id = id;
+        }
+
+        public String getValue() {
+            return value;
+        }
+
+        public int getId() {
+            return id;
+        }
+    }
+
+    public Symbol lookup(String value) {
+        lookups.increment();
+        Symbol symbol = symbols.get(value);
+        if (symbol != null)
+            return symbol;
+        return symbols.computeIfAbsent(value, newSymbol);
+    }
+
+    /**
+     * Returns the canonical instance of the string, or null for null.
+     */
+    public String intern(String value) {
+        if (value == null)
+            return null;
+        return lookup(value).value;
+    }
+
+    public int id(String value) {
+        return lookup(value).id;
+    }
+
+    public int size() {
+        return symbols.size();
+    }
+
+    public long getLookups() {
+        return lookups.sum();
+    }
+
+    public long getHits() {
+        return lookups.sum() - misses.sum();
+    }
+
+    public double getHitRate() {
+        long n = lookups.sum();
+        return n == 0 ? 0 : (double) (n - misses.sum()) / n;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d symbols, %d lookups, %.1f%% hits", size(), getLookups(), 100 * getHitRate());
+    }
+}
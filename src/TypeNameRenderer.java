@@ -0,0 +1,345 @@
+package fqntypeparser;
+
+import java.util.List;
+import java.util.Set;
+
+import org.eclipse.jdt.core.dom.*;
+
+/**
+ * Renders the type names written by FQNSequenceGenerator and ProjectSequencesGenerator. Every
+ * name is appended into one per-thread buffer instead of being concatenated at each level of
+ * the type, and the output is exactly what the recursive string versions produced.
+ */
+public class TypeNameRenderer {
+    private static final int MAX_RETAINED_CAPACITY = 1 << 16;
+
+    private static final ThreadLocal<StringBuilder> BUFFER = new ThreadLocal<StringBuilder>() {
+        @Override
+        protected StringBuilder initialValue() {
+            return new StringBuilder(256);
+        }
+    };
+
+    /**
+     * Supplies the qualified name a resolved type binding is rendered with, or null if the type
+     * is to be rendered unresolved. It is called while the buffer is in use, so it must not
+     * render names through this class.
+     */
+    public interface DeclarationNames {
+        String getDeclarationName(ITypeBinding tb);
+    }
+
+    /**
+     * The qualified name of the type declaration, unless it is local or anonymous.
+     */
+    public static final DeclarationNames DECLARATION_NAMES = new DeclarationNames() {
+        @Override
+        public String getDeclarationName(ITypeBinding tb) {
+            ITypeBinding decl = tb.getTypeDeclaration();
+            if (decl.isLocal() || decl.getQualifiedName().isEmpty())
+                return null;
+            return decl.getQualifiedName();
+        }
+    };
+
+    private TypeNameRenderer() {
+    }
+
+    private static StringBuilder buffer() {
+        StringBuilder sb = BUFFER.get();
+        if (sb.capacity() > MAX_RETAINED_CAPACITY) {
+            sb = new StringBuilder(256);
+            BUFFER.set(sb);
+        }
+        sb.setLength(0);
+        return sb;
+    }
+
+    public static String getDimensions(int dimensions) {
+        switch (dimensions) {
+        case 0:
+            return "";
+        case 1:
+            return "[]";
+        case 2:
+            return "[][]";
+        }
+        StringBuilder sb = buffer();
+        appendDimensions(sb, dimensions);
+        return sb.toString();
+    }
+
+    static void appendDimensions(StringBuilder sb, int dimensions) {
+        for (int i = 0; i < dimensions; i++)
+            sb.append("[]");
+    }
+
+    /**
+     * The type as written in the source, without type arguments.
+     */
+    public static String getUnresolvedType(Type type) {
+        StringBuilder sb = buffer();
+        appendUnresolvedType(sb, type);
+        return sb.toString();
+    }
+
+    static void appendUnresolvedType(StringBuilder sb, Type type) {
+        if (type.isArrayType()) {
+            ArrayType t = (ArrayType) type;
+            appendUnresolvedType(sb, t.getElementType());
+            appendDimensions(sb, t.getDimensions());
+        } else if (type.isIntersectionType()) {
+            appendUnresolvedTypes(sb, ((IntersectionType) type).types(), " & ");
+        } else if (type.isParameterizedType()) {
+            appendUnresolvedType(sb, ((ParameterizedType) type).getType());
+        } else if (type.isUnionType()) {
+            appendUnresolvedTypes(sb, ((UnionType) type).types(), " | ");
+        } else if (type.isNameQualifiedType()) {
+            NameQualifiedType qt = (NameQualifiedType) type;
+            appendName(sb, qt.getQualifier());
+            sb.append('.').append(qt.getName().getIdentifier());
+        } else if (type.isPrimitiveType()) {
+            appendPrimitiveType(sb, (PrimitiveType) type);
+        } else if (type.isQualifiedType()) {
+            QualifiedType qt = (QualifiedType) type;
+            appendUnresolvedType(sb, qt.getQualifier());
+            sb.append('.').append(qt.getName().getIdentifier());
+        } else if (type.isSimpleType()) {
+            appendSimpleType(sb, (SimpleType) type);
+        } else if (type.isWildcardType()) {
+            WildcardType wt = (WildcardType) type;
+            sb.append('?');
+            if (wt.getBound() != null) {
+                sb.append(wt.isUpperBound() ? "extends " : "super ");
+                appendUnresolvedType(sb, wt.getBound());
+            }
+        }
+    }
+
+    private static void appendUnresolvedTypes(StringBuilder sb, List<?> types, String separator) {
+        for (int i = 0; i < types.size(); i++) {
+            if (i > 0)
+                sb.append(separator);
+            appendUnresolvedType(sb, (Type) types.get(i));
+        }
+    }
+
+    /**
+     * The type with its names resolved to the qualified names of their declarations.
+     */
+    public static String getResolvedType(Type type) {
+        return getResolvedType(type, DECLARATION_NAMES);
+    }
+
+    public static String getResolvedType(Type type, DeclarationNames names) {
+        StringBuilder sb = buffer();
+        appendResolvedType(sb, type, names);
+        return sb.toString();
+    }
+
+    static void appendResolvedType(StringBuilder sb, Type type, DeclarationNames names) {
+        ITypeBinding tb = type.resolveBinding();
+        String name = tb == null || tb.isRecovered() ? null : names.getDeclarationName(tb);
+        if (name == null) {
+            appendUnresolvedType(sb, type);
+            return;
+        }
+        if (type.isArrayType()) {
+            ArrayType t = (ArrayType) type;
+            appendResolvedType(sb, t.getElementType(), names);
+            appendDimensions(sb, t.getDimensions());
+        } else if (type.isIntersectionType()) {
+            appendResolvedTypes(sb, ((IntersectionType) type).types(), " & ", names);
+        } else if (type.isParameterizedType()) {
+            appendResolvedType(sb, ((ParameterizedType) type).getType(), names);
+        } else if (type.isUnionType()) {
+            appendResolvedTypes(sb, ((UnionType) type).types(), " | ", names);
+        } else if (type.isNameQualifiedType() || type.isQualifiedType() || type.isSimpleType()) {
+            sb.append(name);
+        } else if (type.isPrimitiveType()) {
+            appendPrimitiveType(sb, (PrimitiveType) type);
+        } else if (type.isWildcardType()) {
+            WildcardType wt = (WildcardType) type;
+            sb.append('?');
+            if (wt.getBound() != null) {
+                sb.append(wt.isUpperBound() ? "extends " : "super ");
+                appendResolvedType(sb, wt.getBound(), names);
+            }
+        }
+    }
+
+    private static void appendResolvedTypes(StringBuilder sb, List<?> types, String separator, DeclarationNames names) {
+        for (int i = 0; i < types.size(); i++) {
+            if (i > 0)
+                sb.append(separator);
+            appendResolvedType(sb, (Type) types.get(i), names);
+        }
+    }
+
+    /**
+     * The simple type used in method signatures, see ProjectSequencesGenerator.getSimpleType.
+     */
+    public static String getSimpleType(Type type) {
+        StringBuilder sb = buffer();
+        appendSimpleNameOfType(sb, type);
+        return sb.toString();
+    }
+
+    static void appendSimpleNameOfType(StringBuilder sb, Type type) {
+        if (type.isArrayType()) {
+            ArrayType t = (ArrayType) type;
+            appendSimpleNameOfType(sb, t.getElementType());
+            appendDimensions(sb, t.getDimensions());
+        } else if (type.isParameterizedType()) {
+            appendSimpleNameOfType(sb, ((ParameterizedType) type).getType());
+        } else if (type.isPrimitiveType()) {
+            appendPrimitiveType(sb, (PrimitiveType) type);
+        } else if (type.isQualifiedType()) {
+            sb.append(((QualifiedType) type).getName().getIdentifier());
+        } else if (type.isSimpleType()) {
+            Name name = ((SimpleType) type).getName();
+            int length = sb.length();
+            if (name instanceof QualifiedName)
+                appendSimpleName(sb, name);
+            if (!(name instanceof QualifiedName) || sb.length() == length)
+                appendName(sb, name);
+        } else if (type.isIntersectionType()) {
+            List<?> types = ((IntersectionType) type).types();
+            for (int i = 0; i < types.size(); i++) {
+                if (i > 0)
+                    sb.append('&');
+                appendSimpleNameOfType(sb, (Type) types.get(i));
+            }
+        } else if (type.isUnionType()) {
+            List<?> types = ((UnionType) type).types();
+            for (int i = 0; i < types.size(); i++) {
+                if (i > 0)
+                    sb.append('|');
+                appendSimpleNameOfType(sb, (Type) types.get(i));
+            }
+        } else if (type.isWildcardType()) {
+            appendSimpleNameOfType(sb, ((WildcardType) type).getBound());
+        } else if (type.isNameQualifiedType()) {
+            sb.append(((NameQualifiedType) type).getName().getIdentifier());
+        } else if (type.isAnnotatable()) {
+            sb.append(type.toString());
+        } else {
+            System.err.println("ERROR: Declare a variable with unknown type!!!");
+            System.exit(0);
+        }
+    }
+
+    /**
+     * Same as getSimpleType(Type), except that simple types are written as in the source and
+     * the given type parameters are replaced with Object.
+     */
+    public static String getSimpleType(Type type, Set<String> typeParameters) {
+        StringBuilder sb = buffer();
+        appendSimpleNameOfType(sb, type, typeParameters);
+        return sb.toString();
+    }
+
+    static void appendSimpleNameOfType(StringBuilder sb, Type type, Set<String> typeParameters) {
+        if (type.isArrayType()) {
+            ArrayType t = (ArrayType) type;
+            appendSimpleNameOfType(sb, t.getElementType(), typeParameters);
+            appendDimensions(sb, t.getDimensions());
+        } else if (type.isParameterizedType()) {
+            appendSimpleNameOfType(sb, ((ParameterizedType) type).getType(), typeParameters);
+        } else if (type.isPrimitiveType()) {
+            appendPrimitiveType(sb, (PrimitiveType) type);
+        } else if (type.isQualifiedType()) {
+            sb.append(((QualifiedType) type).getName().getIdentifier());
+        } else if (type.isSimpleType()) {
+            int length = sb.length();
+            appendSimpleType(sb, (SimpleType) type);
+            if (typeParameters.contains(sb.substring(length))) {
+                sb.setLength(length);
+                sb.append("Object");
+            }
+        } else if (type.isIntersectionType()) {
+            List<?> types = ((IntersectionType) type).types();
+            for (int i = 0; i < types.size(); i++) {
+                if (i > 0)
+                    sb.append('&');
+                appendSimpleNameOfType(sb, (Type) types.get(i), typeParameters);
+            }
+        } else if (type.isUnionType()) {
+            List<?> types = ((UnionType) type).types();
+            for (int i = 0; i < types.size(); i++) {
+                if (i > 0)
+                    sb.append('|');
+                appendSimpleNameOfType(sb, (Type) types.get(i), typeParameters);
+            }
+        } else if (type.isWildcardType()) {
+            appendSimpleNameOfType(sb, ((WildcardType) type).getBound(), typeParameters);
+        } else if (type.isNameQualifiedType()) {
+            sb.append(((NameQualifiedType) type).getName().getIdentifier());
+        } else if (type.isAnnotatable()) {
+            sb.append(type.toString());
+        } else {
+            System.err.println("ERROR: Declare a variable with unknown type!!!");
+            System.exit(0);
+        }
+    }
+
+    /**
+     * The part of the name starting at its first capitalized segment, or an empty string if it
+     * has none.
+     */
+    public static String getSimpleName(Name name) {
+        StringBuilder sb = buffer();
+        appendSimpleName(sb, name);
+        return sb.toString();
+    }
+
+    static void appendSimpleName(StringBuilder sb, Name name) {
+        if (name.isSimpleName()) {
+            String identifier = ((SimpleName) name).getIdentifier();
+            if (Character.isUpperCase(identifier.charAt(0)))
+                sb.append(identifier);
+            return;
+        }
+        QualifiedName qn = (QualifiedName) name;
+        Name first = qn.getQualifier();
+        while (first.isQualifiedName())
+            first = ((QualifiedName) first).getQualifier();
+        if (Character.isUpperCase(((SimpleName) first).getIdentifier().charAt(0))) {
+            appendName(sb, qn);
+            return;
+        }
+        int length = sb.length();
+        appendSimpleName(sb, qn.getQualifier());
+        if (sb.length() == length)
+            appendSimpleName(sb, qn.getName());
+        else
+            sb.append('.').append(qn.getName().getIdentifier());
+    }
+
+    /**
+     * Appends the fully qualified form of the name.
+     */
+    static void appendName(StringBuilder sb, Name name) {
+        if (name.isQualifiedName()) {
+            QualifiedName qn = (QualifiedName) name;
+            appendName(sb, qn.getQualifier());
+            sb.append('.').append(qn.getName().getIdentifier());
+        } else
+            sb.append(((SimpleName) name).getIdentifier());
+    }
+
+    // Annotated types are rare, they are left to the AST flattener.
+    private static void appendSimpleType(StringBuilder sb, SimpleType type) {
+        if (type.annotations().isEmpty())
+            appendName(sb, type.getName());
+        else
+            sb.append(type.toString());
+    }
+
+    private static void appendPrimitiveType(StringBuilder sb, PrimitiveType type) {
+        if (type.annotations().isEmpty())
+            sb.append(type.getPrimitiveTypeCode().toString());
+        else
+            sb.append(type.toString());
+    }
+}
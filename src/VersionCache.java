@@ -0,0 +1,195 @@
+package fqntypeparser;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+import org.xml.sax.SAXException;
+
+/**
+ * Persisted versions of the artifacts of remote repositories, read from their
+ * maven-metadata.xml. Artifacts a repository does not have are remembered too, so known misses
+ * are not requested again. Entries expire, misses sooner than versions. Thread-safe.
+ */
+public class VersionCache {
+    private static final long DAY = 24L * 60 * 60 * 1000;
+
+    private File file;
+    private long ttl = 7 * DAY, missTtl = DAY;
+    private ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private volatile boolean dirty = false;
+
+    private static class Entry {
+        // empty if the repository does not have the artifact
+        private List<String> versions;
+        private String release;
+        private long time;
+
+        private boolean isMissing() {
+            return versions.isEmpty();
+        }
+    }
+
+    private VersionCache(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Loads the cache from the file, or returns an empty one that will be saved there. A null
+     * file keeps the cache in memory.
+     */
+    public static VersionCache load(File file) {
+        VersionCache cache = new VersionCache(file);
+        if (file == null || !file.exists())
+            return cache;
+        try (Reader reader = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)) {
+            JSONObject json = (JSONObject) new JSONParser().parse(reader);
+            for (Object key : json.keySet()) {
+                JSONObject js = (JSONObject) json.get(key);
+                Entry e = new Entry();
+                e.versions = new ArrayList<>();
+                for (Object version : (JSONArray) js.get("versions"))
+                    e.versions.add((String) version);
+                e.release = (String) js.get("release");
+                e.time = ((Number) js.get("time")).longValue();
+                cache.entries.put((String) key, e);
+            }
+        } catch (IOException | ParseException | RuntimeException e) {
+            System.err.println("Ignoring unreadable version cache " + file + ": " + e);
+            cache.entries.clear();
+        }
+        return cache;
+    }
+
+    /**
+     * Sets how long, in milliseconds, the versions of an artifact and a miss are trusted.
+     */
+    public void setTtl(long ttl, long missTtl) {
+        this.ttl = ttl;
+        this.missTtl = missTtl;
+    }
+
+    /**
+     * Returns whether the repository is known not to have the artifact.
+     */
+    public boolean isMissing(String repo, String groupId, String artifactId) {
+        Entry e = getValid(repo, groupId, artifactId);
+        return e != null && e.isMissing();
+    }
+
+    /**
+     * Returns the cached versions of the artifact in the repository, or null if there are none.
+     */
+    public List<String> getCachedVersions(String repo, String groupId, String artifactId) {
+        Entry e = getValid(repo, groupId, artifactId);
+        return e == null ? null : e.versions;
+    }
+
+    /**
+     * Returns the version to use when the requested one is not available: the release version
+     * of the metadata, or else the highest version that is not a snapshot. Fetches the metadata
+     * unless it is cached, and returns null if the repository does not have the artifact.
+     * Errors other than a missing metadata file are not cached.
+     */
+    public String getLatestVersion(String repo, String groupId, String artifactId, DependencyDownloader downloader) throws IOException {
+        Entry e = getValid(repo, groupId, artifactId);
+        if (e == null) {
+            e = new Entry();
+            e.versions = Collections.emptyList();
+            try {
+                String link = repo + groupId.replace('.', '/') + "/" + artifactId + "/maven-metadata.xml";
+                parse(downloader.fetchText(link), e);
+            } catch (FileNotFoundException ex) {
+            }
+            e.time = System.currentTimeMillis();
+            entries.put(getKey(repo, groupId, artifactId), e);
+            dirty = true;
+        }
+        if (e.release != null && !e.release.isEmpty())
+            return e.release;
+        String latest = null;
+        for (String version : e.versions)
+            if (!version.endsWith("-SNAPSHOT") && (latest == null || DependencyResolver.compareVersions(version, latest) > 0))
+                latest = version;
+        return latest;
+    }
+
+    private Entry getValid(String repo, String groupId, String artifactId) {
+        Entry e = entries.get(getKey(repo, groupId, artifactId));
+        if (e == null || System.currentTimeMillis() - e.time > (e.isMissing() ? missTtl : ttl))
+            return null;
+        return e;
+    }
+
+    private static String getKey(String repo, String groupId, String artifactId) {
+        return repo + " " + groupId + ":" + artifactId;
+    }
+
+    private static void parse(String xml, Entry e) throws IOException {
+        try {
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setExpandEntityReferences(false);
+            factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+            DocumentBuilder builder = factory.newDocumentBuilder();
+            Document doc = builder.parse(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)));
+            NodeList versions = doc.getElementsByTagName("version");
+            ArrayList<String> vs = new ArrayList<>();
+            for (int i = 0; i < versions.getLength(); i++) {
+                Element version = (Element) versions.item(i);
+                // the artifact's own <version> is a child of <metadata>, not of <versions>
+                if ("versions".equals(version.getParentNode().getNodeName()))
+                    vs.add(version.getTextContent().trim());
+            }
+            NodeList release = doc.getElementsByTagName("release");
+            e.versions = vs;
+            e.release = release.getLength() > 0 ? release.item(0).getTextContent().trim() : null;
+        } catch (ParserConfigurationException | SAXException ex) {
+            throw new IOException("Invalid maven-metadata.xml", ex);
+        }
+    }
+
+    /**
+     * Writes the cache to its file if it changed since it was loaded or last saved. The file is
+     * replaced atomically, see FileUtil.writeAtomically.
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized void save() throws IOException {
+        if (file == null || !dirty)
+            return;
+        JSONObject json = new JSONObject();
+        for (Map.Entry<String, Entry> me : entries.entrySet()) {
+            Entry e = me.getValue();
+            JSONObject js = new JSONObject();
+            JSONArray versions = new JSONArray();
+            versions.addAll(e.versions);
+            js.put("versions", versions);
+            js.put("release", e.release);
+            js.put("time", e.time);
+            json.put(me.getKey(), js);
+        }
+        file.getAbsoluteFile().getParentFile().mkdirs();
+        FileUtil.writeAtomically(file, json.toJSONString());
+        dirty = false;
+    }
+}
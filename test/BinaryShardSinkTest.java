@@ -0,0 +1,128 @@
+package fqntypeparser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class BinaryShardSinkTest {
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private static List<SequenceRecord> records() {
+        ArrayList<SequenceRecord> records = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            ArrayList<NodeRecord> nodes = new ArrayList<>();
+            for (int j = 0; j < 5; j++) {
+                NodeRecord node = new NodeRecord();
+                node.setNodeType(j % 2 == 0 ? NodeType.METHOD_INVOCATION : NodeType.SIMPLE_NAME);
+                node.setOffsets(100 * i + j, 100 * i + j + 7);
+                node.setDebugText("call" + j + "(\"\u00e9\\n\")");
+                node.setUnresolvedType("List<String>");
+                node.setResolvedType(j == 4 ? null : "java.util.List<java.lang.String>");
+                if (j % 2 == 0) {
+                    node.setPartial("list.get(int)");
+                    node.setFull("java.util.List.get(int)");
+                }
+                nodes.add(node);
+            }
+            // the last record has no nodes at all
+            if (i == 49)
+                nodes.clear();
+            records.add(new SequenceRecord("/src/com/ex/F" + (i % 4) + ".java", "com.ex.F" + (i % 4), "m" + i + "#int#",
+                    "void m" + i + "(int x) {\n\tlist.get(x); // caf\u00e9\n}", nodes));
+        }
+        return records;
+    }
+
+    private static List<String> jsonLines(List<SequenceRecord> records) {
+        ArrayList<String> lines = new ArrayList<>();
+        for (SequenceRecord record : records)
+            lines.add(JsonlShardSinkTest.json(record));
+        return lines;
+    }
+
+    private static List<File> shards(File dir, String extension) {
+        ArrayList<File> shards = new ArrayList<>();
+        String[] names = dir.list();
+        Arrays.sort(names);
+        for (String name : names)
+            if (name.endsWith(extension))
+                shards.add(new File(dir, name));
+        return shards;
+    }
+
+    private static List<SequenceRecord> read(File dir) throws Exception {
+        ArrayList<SequenceRecord> records = new ArrayList<>();
+        for (File shard : shards(dir, BinaryShardSink.EXTENSION)) {
+            try (BinaryShardReader reader = new BinaryShardReader(shard)) {
+                SequenceRecord record;
+                while ((record = reader.next()) != null)
+                    records.add(record);
+                assertNull(reader.next());
+            }
+        }
+        return records;
+    }
+
+    @Test
+    public void roundTripsThroughReaderAndConverter() throws Exception {
+        File dir = tmp.newFolder("bin"), jsonDir = tmp.newFolder("jsonl"), converted = tmp.newFolder("converted");
+        List<SequenceRecord> records = records();
+        // small shards, so the dictionary is restarted a few times
+        BinaryShardSink sink = new BinaryShardSink(dir.getPath(), 2048, new SymbolTable());
+        JsonlShardSink json = new JsonlShardSink(jsonDir.getPath());
+        for (SequenceRecord record : records) {
+            sink.write(record);
+            json.write(record);
+        }
+        sink.close();
+        json.close();
+
+        assertEquals(jsonLines(records), jsonLines(read(dir)));
+
+        List<String> lines = new ArrayList<>();
+        for (File shard : shards(dir, BinaryShardSink.EXTENSION)) {
+            String name = shard.getName().replace(BinaryShardSink.EXTENSION, JsonlShardSink.EXTENSION);
+            BinaryShardConverter.convert(shard, new File(converted, name));
+            lines.addAll(Files.readAllLines(new File(converted, name).toPath(), StandardCharsets.UTF_8));
+        }
+        assertEquals(Files.readAllLines(shards(jsonDir, JsonlShardSink.EXTENSION).get(0).toPath(), StandardCharsets.UTF_8), lines);
+        assertEquals(true, shards(dir, BinaryShardSink.EXTENSION).size() > 1);
+    }
+
+    @Test
+    public void removeDropsOnlyRecordsOfStaleSources() throws Exception {
+        File dir = tmp.newFolder("bin");
+        List<SequenceRecord> records = records();
+        SymbolTable symbols = new SymbolTable();
+        BinaryShardSink sink = new BinaryShardSink(dir.getPath(), 2048, symbols);
+        HashSet<String> outputs = new HashSet<>();
+        for (SequenceRecord record : records)
+            outputs.add(sink.write(record));
+        sink.close();
+
+        sink = new BinaryShardSink(dir.getPath(), 2048, symbols);
+        sink.remove(outputs, Collections.singleton("/src/com/ex/F1.java"));
+        sink.close();
+
+        ArrayList<SequenceRecord> expected = new ArrayList<>();
+        for (SequenceRecord record : records)
+            if (!record.getPath().equals("/src/com/ex/F1.java"))
+                expected.add(record);
+        assertEquals(jsonLines(expected), jsonLines(read(dir)));
+        for (String name : dir.list())
+            assertEquals(name, false, name.endsWith(".tmp"));
+    }
+}
@@ -0,0 +1,72 @@
+package fqntypeparser;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ClasspathBuilderTest {
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    // a jar with one class and the pom.properties of the given g:a:v coordinates, if any
+    private File jar(String name, String... coordinates) throws Exception {
+        File file = new File(tmp.getRoot(), name);
+        try (ZipOutputStream zip = new ZipOutputStream(new FileOutputStream(file))) {
+            zip.putNextEntry(new ZipEntry("a/A.class"));
+            zip.write(new byte[]{(byte) 0xca, (byte) 0xfe});
+            for (String gav : coordinates) {
+                String[] values = gav.split(":");
+                zip.putNextEntry(new ZipEntry("META-INF/maven/" + values[0] + "/" + values[1] + "/pom.properties"));
+                zip.write(("groupId=" + values[0] + "\nartifactId=" + values[1] + "\nversion=" + values[2] + "\n").getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        return file;
+    }
+
+    @Test
+    public void coordinatesComeFromPomProperties() throws Exception {
+        ClasspathBuilder.Jar jar = ClasspathBuilder.inspect(jar("log4j-1.2-api-2.17.0.jar", "org.apache.logging.log4j:log4j-1.2-api:2.17.0"));
+        assertEquals("org.apache.logging.log4j:log4j-1.2-api:", jar.getKey());
+        assertEquals("2.17.0", jar.version);
+
+        jar = ClasspathBuilder.inspect(jar("guava-19.0-android.jar", "com.google.guava:guava:19.0"));
+        assertEquals("com.google.guava:guava:android", jar.getKey());
+        assertEquals("19.0", jar.version);
+    }
+
+    @Test
+    public void bundledPomPropertiesAreNotTakenForTheJarsOwn() throws Exception {
+        ClasspathBuilder.Jar jar = ClasspathBuilder.inspect(jar("app-1.0.jar", "com.ex:lib:3.0", "com.ex:app:1.0"));
+        assertEquals("com.ex:app:", jar.getKey());
+        assertEquals("1.0", jar.version);
+
+        // none of them is the jar's own, so its name is all there is
+        jar = ClasspathBuilder.inspect(jar("shaded-2.0.jar", "com.ex:lib:3.0", "com.ex:other:1.0"));
+        assertEquals(null, jar.groupId);
+        assertEquals("shaded", jar.artifactId);
+        assertEquals("2.0", jar.version);
+    }
+
+    @Test
+    public void highestKeepsEachArtifactWhoseNamesLookAlike() throws Exception {
+        File api = jar("log4j-1.2-api-2.17.0.jar", "org.apache.logging.log4j:log4j-1.2-api:2.17.0");
+        File log4j = jar("log4j-1.2.17.jar", "log4j:log4j:1.2.17");
+        File old = jar("log4j-1.2.16.jar", "log4j:log4j:1.2.16");
+        ClasspathBuilder builder = new ClasspathBuilder(ClasspathBuilder.VersionPolicy.HIGHEST);
+        String[] paths = builder.build(Arrays.asList(api, log4j, old));
+        String[] expected = {api.getAbsolutePath(), log4j.getAbsolutePath()};
+        Arrays.sort(expected);
+        assertArrayEquals(expected, paths);
+        assertEquals(1, builder.getNumOfDuplicates());
+    }
+}
@@ -0,0 +1,219 @@
+package fqntypeparser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.sun.net.httpserver.HttpServer;
+
+public class DependencyDownloaderTest {
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private HttpServer server;
+    private File repo;
+    private String base;
+    // failures still to serve before a path is answered, and requests by path
+    private ConcurrentHashMap<String, AtomicInteger> failures = new ConcurrentHashMap<>();
+    private ConcurrentHashMap<String, AtomicInteger> requests = new ConcurrentHashMap<>();
+    private DependencyDownloader downloader = new DependencyDownloader();
+
+    @Before
+    public void setUp() throws IOException {
+        repo = tmp.newFolder("repo");
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", exchange -> {
+            String path = exchange.getRequestURI().getPath();
+            requests.computeIfAbsent(path, p -> new AtomicInteger()).incrementAndGet();
+            AtomicInteger failing = failures.get(path);
+            File file = new File(repo, path);
+            byte[] body = new byte[0];
+            int status;
+            if (failing != null && failing.getAndDecrement() > 0)
+                status = 503;
+            else if (file.isFile()) {
+                status = 200;
+                body = Files.readAllBytes(file.toPath());
+            } else
+                status = 404;
+            exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+        base = "http://127.0.0.1:" + server.getAddress().getPort() + "/";
+        downloader.setRetries(2, 10);
+        downloader.setTimeouts(2000, 2000);
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    private byte[] publish(String path, String content, boolean withChecksum) throws Exception {
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        File file = new File(repo, path);
+        file.getParentFile().mkdirs();
+        Files.write(file.toPath(), bytes);
+        if (withChecksum)
+            Files.write(new File(repo, path + ".sha1").toPath(), (sha1(bytes) + "  " + file.getName()).getBytes(StandardCharsets.UTF_8));
+        return bytes;
+    }
+
+    private static String sha1(byte[] bytes) throws Exception {
+        StringBuilder sb = new StringBuilder();
+        for (byte b : MessageDigest.getInstance("SHA-1").digest(bytes))
+            sb.append(String.format("%02x", b));
+        return sb.toString();
+    }
+
+    private int requestsOf(String path) {
+        AtomicInteger n = requests.get("/" + path);
+        return n == null ? 0 : n.get();
+    }
+
+    @Test
+    public void downloadsAndVerifiesChecksum() throws Exception {
+        byte[] bytes = publish("g/a/1.0/a-1.0.jar", "jar content", true);
+        File target = new File(tmp.getRoot(), "lib/a-1.0.jar");
+        downloader.download(base + "g/a/1.0/a-1.0.jar", target);
+        assertTrue(java.util.Arrays.equals(bytes, Files.readAllBytes(target.toPath())));
+        assertEquals(1, target.getParentFile().list().length);
+    }
+
+    @Test
+    public void retriesFlakyServer() throws Exception {
+        byte[] bytes = publish("g/a/1.0/a-1.0.jar", "jar content", true);
+        failures.put("/g/a/1.0/a-1.0.jar", new AtomicInteger(2));
+        File target = new File(tmp.getRoot(), "a-1.0.jar");
+        downloader.download(base + "g/a/1.0/a-1.0.jar", target);
+        assertTrue(java.util.Arrays.equals(bytes, Files.readAllBytes(target.toPath())));
+        assertEquals(3, requestsOf("g/a/1.0/a-1.0.jar"));
+    }
+
+    @Test
+    public void givesUpAfterRetries() throws Exception {
+        publish("g/a/1.0/a-1.0.jar", "jar content", true);
+        failures.put("/g/a/1.0/a-1.0.jar", new AtomicInteger(100));
+        File target = new File(tmp.getRoot(), "a-1.0.jar");
+        try {
+            downloader.download(base + "g/a/1.0/a-1.0.jar", target);
+            fail();
+        } catch (FileNotFoundException e) {
+            fail("a server error is not a missing file");
+        } catch (IOException e) {
+        }
+        assertEquals(3, requestsOf("g/a/1.0/a-1.0.jar"));
+        assertFalse(target.exists());
+    }
+
+    @Test
+    public void rejectsBadChecksum() throws Exception {
+        publish("g/a/1.0/a-1.0.jar", "jar content", true);
+        Files.write(new File(repo, "g/a/1.0/a-1.0.jar.sha1").toPath(), sha1(new byte[1]).getBytes(StandardCharsets.UTF_8));
+        File target = new File(tmp.getRoot(), "lib/a-1.0.jar");
+        try {
+            downloader.download(base + "g/a/1.0/a-1.0.jar", target);
+            fail();
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("Checksum mismatch"));
+        }
+        assertFalse(target.exists());
+        // no temporary file is left behind either
+        assertEquals(0, target.getParentFile().list().length);
+    }
+
+    @Test
+    public void acceptsMissingChecksumUnlessRequired() throws Exception {
+        publish("g/a/1.0/a-1.0.jar", "jar content", false);
+        File target = new File(tmp.getRoot(), "a-1.0.jar");
+        downloader.download(base + "g/a/1.0/a-1.0.jar", target);
+        assertTrue(target.exists());
+        target.delete();
+        downloader.setRequireChecksums(true);
+        try {
+            downloader.download(base + "g/a/1.0/a-1.0.jar", target);
+            fail();
+        } catch (FileNotFoundException e) {
+        }
+        assertFalse(target.exists());
+    }
+
+    @Test
+    public void missingFileIsNotRetried() throws Exception {
+        File target = new File(tmp.getRoot(), "a-1.0.jar");
+        try {
+            downloader.download(base + "g/a/1.0/a-1.0.jar", target);
+            fail();
+        } catch (FileNotFoundException e) {
+        }
+        assertEquals(1, requestsOf("g/a/1.0/a-1.0.jar"));
+        assertFalse(target.exists());
+    }
+
+    @Test
+    public void refusedConnectionIsRetried() throws Exception {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        downloader.setRetries(2, 100);
+        String link = "http://127.0.0.1:" + port + "/g/a/1.0/a-1.0.jar";
+        long start = System.nanoTime();
+        try {
+            downloader.download(link, new File(tmp.getRoot(), "a-1.0.jar"));
+            fail();
+        } catch (FileNotFoundException | UnknownHostException e) {
+            fail("a refused connection is neither a missing file nor an unknown host: " + e);
+        } catch (IOException e) {
+        }
+        // both retries slept, 100 and 200 ms
+        assertTrue((System.nanoTime() - start) / 1000000 >= 300);
+    }
+
+    @Test
+    public void unknownHostIsNotRetried() throws Exception {
+        downloader.setRetries(3, 2000);
+        String link = "http://fqntypeparser.invalid/g/a/1.0/a-1.0.jar";
+        long start = System.nanoTime();
+        for (int i = 0; i < 2; i++) {
+            try {
+                downloader.download(link, new File(tmp.getRoot(), "a-1.0.jar"));
+                fail();
+            } catch (UnknownHostException e) {
+            }
+        }
+        // a single retry would have slept for two seconds
+        assertTrue((System.nanoTime() - start) / 1000000 < 2000);
+    }
+
+    @Test
+    public void fetchesText() throws Exception {
+        publish("g/a/maven-metadata.xml", "<metadata/>", false);
+        failures.put("/g/a/maven-metadata.xml", new AtomicInteger(1));
+        assertEquals("<metadata/>", downloader.fetchText(base + "g/a/maven-metadata.xml"));
+        assertEquals(2, requestsOf("g/a/maven-metadata.xml"));
+    }
+}
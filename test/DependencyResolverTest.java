@@ -0,0 +1,32 @@
+package fqntypeparser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.Collections;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class DependencyResolverTest {
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void fallbackOnlyAcceptsAnotherVersionOfTheSameArtifact() throws Exception {
+        File lib = tmp.newFolder("lib");
+        new File(lib, "commons-lang3-3.9.jar").createNewFile();
+        new File(lib, "guava-testlib-19.0.jar").createNewFile();
+        new File(lib, "junit-4.11.jar").createNewFile();
+        DependencyResolver resolver = new DependencyResolver();
+        resolver.setVersionCacheFile(null);
+
+        assertFalse(resolver.resolve("commons-lang", "commons-lang", "2.6", Collections.<String>emptyList(), lib.getPath()));
+        assertFalse(resolver.resolve("com.google.guava", "guava", "19.0", Collections.<String>emptyList(), lib.getPath()));
+        assertTrue(resolver.resolve("junit", "junit", "4.12", Collections.<String>emptyList(), lib.getPath()));
+        assertEquals(2, resolver.await(lib.getPath()));
+    }
+}
@@ -0,0 +1,85 @@
+package fqntypeparser;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.maven.model.Dependency;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class EffectivePomBuilderTest {
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private File repo;
+    private EffectivePomBuilder builder;
+
+    @Before
+    public void setUp() throws Exception {
+        repo = tmp.newFolder("repo");
+        builder = new EffectivePomBuilder(Collections.singletonList(repo));
+    }
+
+    private void pom(String g, String a, String v, String body) throws Exception {
+        File file = new File(repo, g.replace('.', '/') + "/" + a + "/" + v + "/" + a + "-" + v + ".pom");
+        file.getParentFile().mkdirs();
+        String xml = "<project><modelVersion>4.0.0</modelVersion><groupId>" + g + "</groupId><artifactId>" + a
+                + "</artifactId><version>" + v + "</version>" + body + "</project>";
+        Files.write(file.toPath(), xml.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String dependency(String g, String a, String v, String extra) {
+        return "<dependency><groupId>" + g + "</groupId><artifactId>" + a + "</artifactId><version>" + v + "</version>" + extra + "</dependency>";
+    }
+
+    private List<String> closure(String g, String a, String v, String type) {
+        Dependency d = new Dependency();
+        d.setGroupId(g);
+        d.setArtifactId(a);
+        d.setVersion(v);
+        d.setType(type);
+        ArrayList<String> coordinates = new ArrayList<>();
+        for (String[] values : builder.getClosure(Collections.singletonList(d), Collections.<String, String>emptyMap()))
+            coordinates.add(String.join(":", values));
+        return coordinates;
+    }
+
+    @Test
+    public void inheritedDependenciesUseTheChildsProperties() throws Exception {
+        pom("ex", "parent", "1", "<packaging>pom</packaging><properties><lib.version>1.0</lib.version></properties>"
+                + "<dependencies>" + dependency("ex", "lib", "${lib.version}", "") + dependency("ex", "self", "${project.version}", "") + "</dependencies>");
+        pom("ex", "child", "5", "<parent><groupId>ex</groupId><artifactId>parent</artifactId><version>1</version></parent>"
+                + "<properties><lib.version>2.0</lib.version></properties>");
+        pom("ex", "lib", "2.0", "");
+        assertEquals(java.util.Arrays.asList("ex:lib:2.0", "ex:self:5"), closure("ex", "child", "5", "jar"));
+    }
+
+    @Test
+    public void inheritedManagedVersionsUseTheChildsProperties() throws Exception {
+        pom("ex", "parent", "1", "<packaging>pom</packaging><properties><lib.version>1.0</lib.version></properties>"
+                + "<dependencyManagement><dependencies>" + dependency("ex", "lib", "${lib.version}", "") + "</dependencies></dependencyManagement>");
+        pom("ex", "child", "5", "<parent><groupId>ex</groupId><artifactId>parent</artifactId><version>1</version></parent>"
+                + "<properties><lib.version>3.0</lib.version></properties>"
+                + "<dependencies><dependency><groupId>ex</groupId><artifactId>lib</artifactId></dependency></dependencies>");
+        assertEquals(Collections.singletonList("ex:lib:3.0"), closure("ex", "child", "5", "jar"));
+    }
+
+    @Test
+    public void pomDependenciesOnlyContributeTheirDependencies() throws Exception {
+        pom("ex", "app", "1", "<dependencies>" + dependency("ex", "stack", "1", "<type>pom</type>")
+                + dependency("ex", "tests", "1", "<type>test-jar</type>") + dependency("ex", "web", "1", "<type>war</type>") + "</dependencies>");
+        pom("ex", "stack", "1", "<packaging>pom</packaging><dependencies>" + dependency("ex", "core", "1", "") + "</dependencies>");
+        pom("ex", "core", "1", "");
+        assertEquals(Collections.singletonList("ex:core:1"), closure("ex", "app", "1", "jar"));
+        // and so does a direct one
+        assertEquals(Collections.singletonList("ex:core:1"), closure("ex", "stack", "1", "pom"));
+    }
+}
@@ -0,0 +1,150 @@
+package fqntypeparser;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.maven.model.Dependency;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class GradleBuildParserTest {
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private String write(String content) throws Exception {
+        File file = tmp.newFile();
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        return file.getPath();
+    }
+
+    private static List<String> join(List<String[]> dependencies) {
+        ArrayList<String> coordinates = new ArrayList<>();
+        for (String[] values : dependencies)
+            coordinates.add(String.join(":", values));
+        return coordinates;
+    }
+
+    // The direct dependencies ClassPathUtil hands to the resolver for a build file.
+    private static List<String> resolve(String path) {
+        final ArrayList<String> coordinates = new ArrayList<>();
+        DependencyResolver resolver = new DependencyResolver() {
+            @Override
+            public int resolveAll(Collection<Dependency> direct, Map<String, String> managedVersions, Collection<String> repoLinks, String outPath) {
+                for (Dependency d : direct)
+                    coordinates.add(d.getGroupId() + ":" + d.getArtifactId() + ":" + d.getVersion());
+                return 0;
+            }
+        };
+        ClassPathUtil.getGradleDependencies(new File(path), "lib", resolver);
+        return coordinates;
+    }
+
+    @Test
+    public void matchesTheLineBasedParser() throws Exception {
+        String path = write("buildscript {\n"
+                + "    dependencies {\n"
+                + "        classpath 'org.jetbrains.kotlin:kotlin-gradle-plugin:1.3.0'\n"
+                + "    }\n"
+                + "}\n"
+                + "junitVersion = '4.12'\n"
+                + "lang = '3.9'\n"
+                + "dependencies {\n"
+                + "    compile 'com.googlecode.json-simple:json-simple:1.1.1'\n"
+                + "    compile \"org.apache.commons:commons-lang3:$lang\"\n"
+                + "    compile 'org.apache.commons:commons-text:' + lang\n"
+                + "    compile group: 'com.google.guava', name: 'guava', version: '28.0-jre'\n"
+                + "    testCompile \"junit:junit:$junitVersion\"\n"
+                + "    testCompile 'org.mockito:mockito-core:2.0.0-SNAPSHOT'\n"
+                + "    compile 'org.projectlombok:lombok:1.18.+'\n"
+                + "    compile 'org.slf4j:slf4j-api'\n"
+                + "    compile(\"log4j:log4j:1.2.17\")\n"
+                + "    compile 'x:aar-lib:1.0@aar'\n"
+                + "    compile \"unknown:lib:$missing\"\n"
+                + "}\n");
+        // what the line-based parser resolved for this file, except for two of its bugs: it
+        // turned 'commons-text:' + lang into version "0la", and it missed compile(...)
+        assertEquals(Arrays.asList(
+                "org.jetbrains.kotlin:kotlin-gradle-plugin:1.3.0",
+                "com.googlecode.json-simple:json-simple:1.1.1",
+                "org.apache.commons:commons-lang3:3.9",
+                "org.apache.commons:commons-text:3.9",
+                "com.google.guava:guava:28.0-jre",
+                "junit:junit:4.12",
+                "org.mockito:mockito-core:2.0.0.0",
+                "org.projectlombok:lombok:1.18.0",
+                "org.slf4j:slf4j-api:null",
+                "log4j:log4j:1.2.17"), resolve(path));
+    }
+
+    @Test
+    public void readsCurrentConfigurationsAndNotations() throws Exception {
+        String path = write("ext.kotlin_version = '1.3.0' // trailing comment\n"
+                + "ext {\n"
+                + "    junitVersion = \"4.12\"\n"
+                + "    libs = [json: 'com.googlecode.json-simple:json-simple:1.1.1']\n"
+                + "    set('guavaVersion', '28.0-jre')\n"
+                + "}\n"
+                + "def commonsVersion = '3.' + '9'\n"
+                + "/* dependencies { compile 'commented:out:1' } */\n"
+                + "dependencies {\n"
+                + "    implementation project(':core')\n"
+                + "    implementation files('libs/a.jar')\n"
+                + "    implementation \"org.jetbrains.kotlin:kotlin-stdlib:$kotlin_version\"\n"
+                + "    implementation \"org.apache.commons:commons-lang3:${commonsVersion}\"\n"
+                + "    api group: 'com.google.guava', name: 'guava', version: guavaVersion\n"
+                + "    compileOnly('org.projectlombok:lombok:1.18.4') { exclude group: 'x' }\n"
+                + "    testImplementation \"junit:junit:${rootProject.ext.junitVersion}\", 'org.hamcrest:hamcrest-core:1.3'\n"
+                + "    implementation libs.json\n"
+                + "    testCompile([group: 'org.mockito', name: 'mockito-core', version: '2.23.0'])\n"
+                + "    androidTestImplementation '''com.android:espresso:3.0'''\n"
+                + "    runtimeOnly 'not:on:classpath'\n"
+                + "    if (x == 'y') { compile 'nested:block:1' }\n"
+                + "}\n");
+        assertEquals(Arrays.asList(
+                "org.jetbrains.kotlin:kotlin-stdlib:1.3.0",
+                "org.apache.commons:commons-lang3:3.9",
+                "com.google.guava:guava:28.0-jre",
+                "org.projectlombok:lombok:1.18.4",
+                "junit:junit:4.12",
+                "org.hamcrest:hamcrest-core:1.3",
+                "com.googlecode.json-simple:json-simple:1.1.1",
+                "org.mockito:mockito-core:2.23.0",
+                "com.android:espresso:3.0",
+                "nested:block:1"), join(GradleBuildParser.getDependencies(path)));
+    }
+
+    @Test
+    public void keepsUnknownReferences() throws Exception {
+        String path = write("dependencies {\n"
+                + "    compile \"a:b:$unknown\", 'c:d'\n"
+                + "    compile 'e:f:' + unknown\n"
+                + "}\n");
+        // the second one is dropped: a concatenation with an unknown value has no value
+        assertEquals(Arrays.asList("a:b:$unknown", "c:d:null"), join(GradleBuildParser.getDependencies(path)));
+    }
+
+    @Test
+    public void cachesByContent() throws Exception {
+        String content = "dependencies { compile 'a:b:1' }\n";
+        String first = write(content), second = write(content);
+        List<String[]> dependencies = GradleBuildParser.getDependencies(first);
+        dependencies.get(0)[2] = "changed";
+        dependencies.clear();
+        assertEquals(Arrays.asList("a:b:1"), join(GradleBuildParser.getDependencies(second)));
+        assertEquals(Arrays.asList("a:b:1"), join(GradleBuildParser.getDependencies(first)));
+    }
+
+    @Test
+    public void unreadableFileHasNoDependencies() {
+        assertEquals(0, GradleBuildParser.getDependencies(new File(tmp.getRoot(), "missing.gradle").getPath()).size());
+    }
+}
@@ -0,0 +1,118 @@
+package fqntypeparser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class JsonlShardSinkTest {
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    static SequenceRecord record(String path, String signature) {
+        NodeRecord node = new NodeRecord();
+        node.setNodeType(NodeType.METHOD_INVOCATION);
+        node.setOffsets(10, 20);
+        node.setDebugText("list.add(\"x\")");
+        node.setUnresolvedType("boolean");
+        node.setResolvedType("boolean");
+        node.setPartial("list.add(String)");
+        node.setFull("java.util.List.add(java.lang.Object)");
+        return new SequenceRecord(path, "com.ex.A", signature, "void " + signature + "() {}", Collections.singletonList(node));
+    }
+
+    static String json(SequenceRecord record) {
+        StringBuilder sb = new StringBuilder();
+        record.appendJson(sb);
+        return sb.toString();
+    }
+
+    private static List<String> readLines(File dir) throws Exception {
+        ArrayList<String> lines = new ArrayList<>();
+        String[] names = dir.list();
+        Arrays.sort(names);
+        for (String name : names)
+            if (name.endsWith(JsonlShardSink.EXTENSION))
+                lines.addAll(Files.readAllLines(new File(dir, name).toPath(), StandardCharsets.UTF_8));
+        return lines;
+    }
+
+    @Test
+    public void removeDropsOnlyRecordsOfStaleSources() throws Exception {
+        File dir = tmp.newFolder("out");
+        String a = "/src/A.java", b = "/src/B.java", ab = "/src/AB.java";
+        // tiny shards: every record gets a shard of its own
+        JsonlShardSink sink = new JsonlShardSink(dir.getPath(), 1);
+        HashSet<String> outputs = new HashSet<>();
+        outputs.add(sink.write(record(a, "m1")));
+        outputs.add(sink.write(record(b, "m2")));
+        outputs.add(sink.write(record(ab, "m3")));
+        sink.close();
+        assertEquals(3, outputs.size());
+
+        // the next run removes B
+        sink = new JsonlShardSink(dir.getPath(), 1);
+        sink.remove(outputs, Collections.singleton(b));
+        sink.close();
+
+        List<String> lines = readLines(dir);
+        assertEquals(Arrays.asList(json(record(a, "m1")), json(record(ab, "m3"))), lines);
+        // the shard that only held B is gone, and no temporary file is left behind
+        assertEquals(2, dir.list().length);
+        for (String name : dir.list())
+            assertFalse(name, name.endsWith(".tmp"));
+    }
+
+    @Test
+    public void removeKeepsOtherRecordsOfTheSameShard() throws Exception {
+        File dir = tmp.newFolder("out");
+        JsonlShardSink sink = new JsonlShardSink(dir.getPath());
+        String shard = sink.write(record("/src/A.java", "m1"));
+        sink.write(record("/src/B.java", "m2"));
+        sink.write(record("/src/A.java", "m3"));
+        sink.close();
+
+        sink = new JsonlShardSink(dir.getPath());
+        sink.remove(Collections.singleton(shard), Collections.singleton("/src/A.java"));
+        sink.close();
+
+        assertEquals(Collections.singletonList(json(record("/src/B.java", "m2"))), readLines(dir));
+        assertTrue(new File(shard).exists());
+    }
+
+    @Test
+    public void clearDeletesShardsOfEarlierRunsInAnyFormat() throws Exception {
+        File dir = tmp.newFolder("out");
+        JsonlShardSink sink = new JsonlShardSink(dir.getPath());
+        sink.write(record("/src/A.java", "m1"));
+        sink.close();
+        BinaryShardSink binary = new BinaryShardSink(dir.getPath());
+        binary.write(record("/src/A.java", "m1"));
+        binary.close();
+        File other = new File(dir, "report.json");
+        Files.write(other.toPath(), new byte[0]);
+
+        // a cold rerun writes the same record again
+        sink = new JsonlShardSink(dir.getPath());
+        sink.clear();
+        String shard = sink.write(record("/src/A.java", "m1"));
+        sink.close();
+
+        assertEquals(Collections.singletonList(json(record("/src/A.java", "m1"))), readLines(dir));
+        assertEquals(JsonlShardSink.getShardFile(dir, JsonlShardSink.PREFIX, 0, JsonlShardSink.EXTENSION).getAbsolutePath(), shard);
+        assertEquals(2, dir.list().length);
+        assertTrue(other.exists());
+    }
+}
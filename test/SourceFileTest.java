@@ -0,0 +1,27 @@
+package fqntypeparser;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class SourceFileTest {
+    private static final String CLASS = "class A {\n    void m() {\n        f();\n    }\n}\n";
+
+    // the snippet of m, from "void" to its closing brace
+    private static String snippet(String content) {
+        SourceFile source = new SourceFile("A.java", content);
+        int start = content.indexOf("void"), end = content.indexOf("    }") + 5;
+        return source.getLinesOf(start, end - start).toString();
+    }
+
+    @Test
+    public void snippetCoversWholeLines() {
+        assertEquals("    void m() {\n        f();\n    }", snippet(CLASS));
+    }
+
+    @Test
+    public void snippetLineTerminatorsAreNormalized() {
+        assertEquals(snippet(CLASS), snippet(CLASS.replace("\n", "\r\n")));
+        assertEquals(snippet(CLASS), snippet(CLASS.replace("\n", "\r")));
+    }
+}
@@ -0,0 +1,41 @@
+package fqntypeparser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class SourceHeaderScannerTest {
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private String source(String content) throws Exception {
+        File file = tmp.newFile();
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        return file.getPath();
+    }
+
+    @Test
+    public void skipsPackageAnnotations() throws Exception {
+        assertEquals("a.b", SourceHeaderScanner.readPackage(source("@Deprecated\npackage a.b;\n")));
+        assertEquals("a.b", SourceHeaderScanner.readPackage(source("@x.y.Foo package a.b;\n")));
+        assertEquals("a.b", SourceHeaderScanner.readPackage(source(
+                "/** doc */\n@Generated(value = \"x) // (\", date = '(')\n@SuppressWarnings({\"a\", \"b\"})\npackage a.b;\n")));
+        assertEquals("a.b", SourceHeaderScanner.readPackage(source("@Foo(bar = @Bar(\"\\\"(\"))\npackage a.b;\n")));
+    }
+
+    @Test
+    public void matchesAnnotatedPackage() throws Exception {
+        PrefixTrie<Boolean> prefixes = new PrefixTrie<>();
+        prefixes.put("org.apache.commons.", true);
+        assertTrue(SourceHeaderScanner.matches(source("@Generated(\"x\") package a.b;\nimport org.apache.commons.lang3.StringUtils;\n"), prefixes));
+        assertFalse(SourceHeaderScanner.matches(source("@a.b.Foo package a.b;\nimport java.util.List;\n"), prefixes));
+    }
+}
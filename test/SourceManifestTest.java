@@ -0,0 +1,70 @@
+package fqntypeparser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class SourceManifestTest {
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private static void write(File file, String content) throws Exception {
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // a run that processes every changed source and records one output for it
+    private static SourceManifest run(String outPath, String path, String output) {
+        SourceManifest manifest = SourceManifest.load(outPath);
+        manifest.setClasspathFingerprint("cp");
+        for (String changed : manifest.getChangedSources(new String[]{path}))
+            manifest.addOutput(changed, output);
+        manifest.commit(new String[]{path});
+        return manifest;
+    }
+
+    @Test
+    public void changedSourceReplacesItsEntryOnceOldRecordsAreRemoved() throws Exception {
+        String outPath = tmp.newFolder("out").getPath();
+        File source = tmp.newFile("A.java");
+        write(source, "package a; class A {}");
+        run(outPath, source.getPath(), "shard-0").save();
+
+        write(source, "package a; class A { void m() {} }");
+        SourceManifest manifest = run(outPath, source.getPath(), "shard-1");
+        assertEquals(Collections.singleton("shard-0"), manifest.getOutputs(source.getPath()));
+        manifest.replaceAll();
+        manifest.save();
+
+        manifest = SourceManifest.load(outPath);
+        manifest.setClasspathFingerprint("cp");
+        assertTrue(manifest.getChangedSources(new String[]{source.getPath()}).isEmpty());
+        assertEquals(Collections.singleton("shard-1"), manifest.getOutputs(source.getPath()));
+    }
+
+    @Test
+    public void failedRemovalKeepsOldAndNewOutputsAndParsesAgain() throws Exception {
+        String outPath = tmp.newFolder("out").getPath();
+        File source = tmp.newFile("A.java");
+        write(source, "package a; class A {}");
+        run(outPath, source.getPath(), "shard-0").save();
+
+        write(source, "package a; class A { void m() {} }");
+        // removing the records in shard-0 fails, so replaceAll is never called
+        run(outPath, source.getPath(), "shard-1").save();
+
+        SourceManifest manifest = SourceManifest.load(outPath);
+        manifest.setClasspathFingerprint("cp");
+        assertEquals(new HashSet<>(Arrays.asList("shard-0", "shard-1")), manifest.getOutputs(source.getPath()));
+        assertEquals(Collections.singletonList(source.getPath()), manifest.getChangedSources(new String[]{source.getPath()}));
+    }
+}